@@ -19,6 +19,7 @@
 package com.miracl.mpinsdk;
 
 import android.content.Context;
+import android.util.Log;
 
 import com.miracl.mpinsdk.model.OTP;
 import com.miracl.mpinsdk.model.RegCode;
@@ -28,6 +29,17 @@ import com.miracl.mpinsdk.model.Signature;
 import com.miracl.mpinsdk.model.Status;
 import com.miracl.mpinsdk.model.User;
 import com.miracl.mpinsdk.model.VerificationResult;
+import com.miracl.mpinsdk.net.CompressionConfig;
+import com.miracl.mpinsdk.net.CompressionStats;
+import com.miracl.mpinsdk.net.HTTPConnector;
+import com.miracl.mpinsdk.net.IHTTPEventListener;
+import com.miracl.mpinsdk.net.IHTTPTransport;
+import com.miracl.mpinsdk.net.OperationContext;
+import com.miracl.mpinsdk.net.ResponseCache;
+import com.miracl.mpinsdk.net.RetryConfig;
+import com.miracl.mpinsdk.net.UrlConnectionTransport;
+import com.miracl.mpinsdk.util.NativeCleaner;
+import com.miracl.mpinsdk.util.StringMapCodec;
 
 import java.io.Closeable;
 import java.util.List;
@@ -42,32 +54,147 @@ public class MPinMFA implements Closeable {
      */
     public static final String AUTHENTICATION_NOTIFICATION_CHANNEL_ID = "mpin_authentication_notification_channel";
 
-    private long mPtr;
+    /**
+     * Receives the users listed by {@link #listUsers(UserVisitor)} one at a time.
+     */
+    public interface UserVisitor {
+
+        /**
+         * @param user
+         *   The next user. Users that are not kept by the visitor should be closed to release them right away.
+         * @return <code>true</code> to continue the listing or <code>false</code> to stop it
+         */
+        boolean visit(User user);
+    }
+
+    private static final NativeCleaner.Deallocator DEALLOCATOR = new NativeCleaner.Deallocator() {
+
+        @Override
+        public void free(long ptr) {
+            nDestruct(ptr);
+        }
+    };
+
+    private static final String TAG = "MPinMFA";
+
+    private static volatile boolean sLeakDetection;
+
+    private long                    mPtr;
+    private NativeCleaner.Cleanable mCleanable;
 
     public MPinMFA() {
         mPtr = nConstruct();
+        mCleanable = NativeCleaner.register(this, mPtr, DEALLOCATOR);
     }
 
     @Override
     public void close() {
         synchronized (this) {
-            nDestruct(mPtr);
+            mCleanable.clean();
             mPtr = 0;
         }
+
+        if (sLeakDetection) {
+            NativeDiagnostics diagnostics = getNativeDiagnostics();
+            if (diagnostics.hasLeaks()) {
+                Log.w(TAG, "Native resources left after the last SDK instance was closed: " + diagnostics);
+            }
+        }
     }
 
-    @Override
-    protected void finalize() throws Throwable {
-        close();
-        super.finalize();
+    /**
+     * Get the native resources currently held by all SDK instances, for tracking native memory growth.
+     */
+    public static NativeDiagnostics getNativeDiagnostics() {
+        return new NativeDiagnostics(nGetNativeCounters());
+    }
+
+    /**
+     * Log a warning with the {@link NativeDiagnostics} when native resources are left after the last SDK instance is
+     * closed, for example users that were never closed. Meant for debug builds.
+     *
+     * @param enabled
+     *   Whether to check for leaks on {@link #close()}
+     */
+    public static void setLeakDetection(boolean enabled) {
+        sLeakDetection = enabled;
+    }
+
+    /**
+     * Reuse keep-alive connections to the backends across requests and flows. Applies to all SDK instances using the
+     * default transport. To configure the size of the pool and the eviction of idle connections, use an
+     * {@link com.miracl.mpinsdk.net.OkHttpTransport} with a client that has the desired connection pool.
+     *
+     * @param enabled
+     *   Whether to reuse the connections, <code>false</code> by default
+     */
+    public static void setConnectionReuse(boolean enabled) {
+        UrlConnectionTransport.setConnectionReuse(enabled);
+    }
+
+    /**
+     * Route the HTTP requests of all SDK instances through a custom transport, for example an
+     * {@link com.miracl.mpinsdk.net.OkHttpTransport} that reuses the application's HTTP client.
+     *
+     * @param transport
+     *   The transport or <code>null</code> to use the default {@link UrlConnectionTransport}
+     */
+    public static void setHttpTransport(IHTTPTransport transport) {
+        HTTPConnector.setTransport(transport);
+    }
+
+    /**
+     * Compress the traffic to the backends. Applies to all SDK instances.
+     *
+     * @param config
+     *   The compression configuration or <code>null</code> to leave the encoding of the traffic to the HTTP transport
+     */
+    public static void setCompression(CompressionConfig config) {
+        HTTPConnector.setCompression(config);
+    }
+
+    public static CompressionStats getCompressionStats() {
+        return HTTPConnector.getCompressionStats();
+    }
+
+    /**
+     * Cache the responses of the backends, so repeated requests for rarely changing data, like the client settings and
+     * the service details, are served locally or revalidated instead of downloaded again. Applies to all SDK instances.
+     *
+     * @param cache
+     *   The cache or <code>null</code> to disable caching
+     */
+    public static void setResponseCache(ResponseCache cache) {
+        HTTPConnector.setResponseCache(cache);
+    }
+
+    /**
+     * Retry the requests that fail because of network errors or unavailable backends, instead of failing the operation with
+     * {@link Status.Code#NETWORK_ERROR}. Applies to all SDK instances.
+     *
+     * @param config
+     *   The retry configuration or <code>null</code> to disable retries
+     */
+    public static void setRetryConfig(RetryConfig config) {
+        HTTPConnector.setRetryConfig(config);
+    }
+
+    /**
+     * Report the timings of the HTTP requests made by all SDK instances, attributed to the operations that made them.
+     *
+     * @param listener
+     *   The listener or <code>null</code> to stop reporting
+     */
+    public static void setHttpEventListener(IHTTPEventListener listener) {
+        HTTPConnector.setEventListener(listener);
     }
 
     public Status init(Map<String, String> config, Context context) {
-        return nInit(mPtr, config, context);
+        return checkDeadline(nInit(mPtr, StringMapCodec.encode(config), context));
     }
 
     public void addCustomHeaders(Map<String, String> headers) {
-        nAddCustomHeaders(mPtr, headers);
+        nAddCustomHeaders(mPtr, StringMapCodec.encode(headers));
     }
 
     public void clearCustomHeaders() {
@@ -83,7 +210,7 @@ public class MPinMFA implements Closeable {
     }
 
     public Status testBackend(String server) {
-        return nTestBackend(mPtr, server);
+        return checkDeadline(nTestBackend(mPtr, server));
     }
 
     public boolean isUserExisting(String id) {
@@ -99,7 +226,7 @@ public class MPinMFA implements Closeable {
     }
 
     public Status setBackend(String server) {
-        return nSetBackend(mPtr, server);
+        return checkDeadline(nSetBackend(mPtr, server));
     }
 
     public User makeNewUser(String id) {
@@ -112,6 +239,7 @@ public class MPinMFA implements Closeable {
 
     public void deleteUser(User user) {
         nDeleteUser(mPtr, user);
+        user.invalidateSnapshot();
     }
 
     public void clearUsers() {
@@ -123,7 +251,9 @@ public class MPinMFA implements Closeable {
     }
 
     public boolean logout(User user) {
-        return nLogout(mPtr, user);
+        boolean result = nLogout(mPtr, user);
+        user.invalidateSnapshot();
+        return result;
     }
 
     public String getClientParam(String key) {
@@ -132,11 +262,11 @@ public class MPinMFA implements Closeable {
 
 
     public Status getServiceDetails(String serviceUrl, ServiceDetails serviceDetails) {
-        return nGetServiceDetails(mPtr, serviceUrl, serviceDetails);
+        return checkDeadline(nGetServiceDetails(mPtr, serviceUrl, serviceDetails));
     }
 
     public Status getSessionDetails(String accessCode, SessionDetails sessionDetails) {
-        return nGetSessionDetails(mPtr, accessCode, sessionDetails);
+        return checkDeadline(nGetSessionDetails(mPtr, accessCode, sessionDetails));
     }
 
     public void setCid(String cid) {
@@ -144,88 +274,88 @@ public class MPinMFA implements Closeable {
     }
 
     public Status abortSession(String accessCode) {
-        return nAbortSession(mPtr, accessCode);
+        return checkDeadline(nAbortSession(mPtr, accessCode));
     }
 
 
     public Status startRegistration(User user, String accessCode) {
-        return nStartRegistration(mPtr, user, accessCode, "");
+        return afterUserCall(user, nStartRegistration(mPtr, user, accessCode, ""));
     }
 
     public Status startRegistration(User user, String accessCode, String pushToken) {
-        return nStartRegistration(mPtr, user, accessCode, pushToken);
+        return afterUserCall(user, nStartRegistration(mPtr, user, accessCode, pushToken));
     }
 
     public Status startRegistration(User user, String accessCode, String pushToken, String regCode) {
-        return nStartRegistrationRegCode(mPtr, user, accessCode, pushToken, regCode);
+        return afterUserCall(user, nStartRegistrationRegCode(mPtr, user, accessCode, pushToken, regCode));
     }
 
     public Status restartRegistration(User user) {
-        return nRestartRegistration(mPtr, user);
+        return afterUserCall(user, nRestartRegistration(mPtr, user));
     }
 
     public Status confirmRegistration(User user) {
-        return nConfirmRegistration(mPtr, user);
+        return afterUserCall(user, nConfirmRegistration(mPtr, user));
     }
 
     public Status finishRegistration(User user, String secret) {
-        return nFinishRegistration(mPtr, user, secret);
+        return afterUserCall(user, nFinishRegistration(mPtr, user, secret));
     }
 
     public Status finishRegistration(User user, String[] multiFactor) {
-        return nFinishRegistrationMultiFactor(mPtr, user, multiFactor);
+        return afterUserCall(user, nFinishRegistrationMultiFactor(mPtr, user, multiFactor));
     }
 
     public Status startRegistrationDvs(User user, String[] multiFactor) {
-        return nStartRegistrationDVS(mPtr, user, multiFactor);
+        return afterUserCall(user, nStartRegistrationDVS(mPtr, user, multiFactor));
     }
 
     public Status finishRegistrationDvs(User user, String[] multiFactor) {
-        return nFinishRegistrationDVS(mPtr, user, multiFactor);
+        return afterUserCall(user, nFinishRegistrationDVS(mPtr, user, multiFactor));
     }
 
     public Status getAccessCode(String authUrl, StringBuilder accessCode) {
-        return nGetAccessCode(mPtr, authUrl, accessCode);
+        return checkDeadline(nGetAccessCode(mPtr, authUrl, accessCode));
     }
 
     public Status startAuthentication(User user, String accessCode) {
-        return nStartAuthentication(mPtr, user, accessCode);
+        return afterUserCall(user, nStartAuthentication(mPtr, user, accessCode));
     }
 
     public Status startAuthenticationOtp(User user) {
-        return nStartAuthenticationOTP(mPtr, user);
+        return afterUserCall(user, nStartAuthenticationOTP(mPtr, user));
     }
 
     public Status startAuthenticationRegCode(User user) {
-        return nStartAuthenticationRegCode(mPtr, user);
+        return afterUserCall(user, nStartAuthenticationRegCode(mPtr, user));
     }
 
     public Status finishAuthentication(User user, String secret, String accessCode) {
-        return nFinishAuthentication(mPtr, user, secret, accessCode);
+        return afterUserCall(user, nFinishAuthentication(mPtr, user, secret, accessCode));
     }
 
     public Status finishAuthentication(User user, String[] multiFactor, String accessCode) {
-        return nFinishAuthenticationMultiFactor(mPtr, user, multiFactor, accessCode);
+        return afterUserCall(user, nFinishAuthenticationMultiFactor(mPtr, user, multiFactor, accessCode));
     }
 
     public Status finishAuthentication(User user, String secret, String accessCode, StringBuilder authCode) {
-        return nFinishAuthenticationAuthCode(mPtr, user, secret, accessCode, authCode);
+        return afterUserCall(user, nFinishAuthenticationAuthCode(mPtr, user, secret, accessCode, authCode));
     }
 
     public Status finishAuthentication(User user, String[] multiFactor, String accessCode, StringBuilder authCode) {
-        return nFinishAuthenticationAuthCodeMultiFactor(mPtr, user, multiFactor, accessCode, authCode);
+        return afterUserCall(user, nFinishAuthenticationAuthCodeMultiFactor(mPtr, user, multiFactor, accessCode, authCode));
     }
 
     public Status finishAuthenticationOtp(User user, String secret, OTP otp) {
-        return nFinishAuthenticationOTP(mPtr, user, secret, otp);
+        return afterUserCall(user, nFinishAuthenticationOTP(mPtr, user, secret, otp));
     }
 
     public Status finishAuthenticationOtp(User user, String[] multiFactor, OTP otp) {
-        return nFinishAuthenticationOTPMultiFactor(mPtr, user, multiFactor, otp);
+        return afterUserCall(user, nFinishAuthenticationOTPMultiFactor(mPtr, user, multiFactor, otp));
     }
 
     public Status finishAuthenticationRegCode(User user, String[] multiFactor, RegCode regCode) {
-        return nFinishAuthenticationRegCode(mPtr, user, multiFactor, regCode);
+        return afterUserCall(user, nFinishAuthenticationRegCode(mPtr, user, multiFactor, regCode));
     }
 
     public boolean isRegistrationTokenSet(User user) {
@@ -233,19 +363,68 @@ public class MPinMFA implements Closeable {
     }
 
     public Status sign(User user, byte[] documentHash, String secret, int epochTime, Signature signature) {
-        return nSign(mPtr, user, documentHash, secret, epochTime, signature);
+        return afterUserCall(user, nSign(mPtr, user, documentHash, secret, epochTime, signature));
     }
 
     public Status sign(User user, byte[] documentHash, String[] multiFactor, int epochTime, Signature signature) {
-        return nSignMultiFactor(mPtr, user, documentHash, multiFactor, epochTime, signature);
+        return afterUserCall(user, nSignMultiFactor(mPtr, user, documentHash, multiFactor, epochTime, signature));
     }
 
     public Status listUsers(List<User> users) {
-        return nListUsers(mPtr, users);
+        return checkDeadline(nListUsers(mPtr, users));
+    }
+
+    /**
+     * List a page of the stored users, without creating objects for the users outside of the page.
+     *
+     * @param offset
+     *   The index of the first user to list
+     * @param limit
+     *   The maximum number of users to list
+     * @param users
+     *   The list to which the users are added
+     */
+    public Status listUsers(int offset, int limit, List<User> users) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException();
+        }
+        return checkDeadline(nListUsersPage(mPtr, offset, limit, users));
+    }
+
+    /**
+     * List only the stored users that match all of the given criteria. The matching is done by the native SDK, so no
+     * objects are created for the rest of the users.
+     *
+     * @param backend
+     *   The authority (host and optional port) of the backend the users are registered with, compared case-insensitively,
+     *   or <code>null</code> to match any backend
+     * @param customerId
+     *   The customer id of the users or <code>null</code> to match any customer
+     * @param appId
+     *   The app id of the users or <code>null</code> to match any app
+     * @param state
+     *   The state of the users or <code>null</code> to match any state
+     * @param users
+     *   The list to which the matching users are added
+     */
+    public Status listUsers(String backend, String customerId, String appId, User.State state, List<User> users) {
+        return checkDeadline(nListUsersFiltered(mPtr, backend, customerId, appId, state != null ? state.ordinal() : -1, users));
+    }
+
+    /**
+     * List the stored users one at a time. The users are listed from a single snapshot taken when the listing starts, and
+     * objects are created only for the users passed to the visitor, so the memory held by the listing doesn't grow with the
+     * number of stored users as long as the visitor closes the users it doesn't keep.
+     *
+     * @param visitor
+     *   The visitor that receives the users
+     */
+    public Status listUsers(UserVisitor visitor) {
+        return checkDeadline(nVisitUsers(mPtr, visitor));
     }
 
     public Status setRegistrationToken(User user, String regToken) {
-        return nSetRegistrationToken(mPtr, user, regToken);
+        return afterUserCall(user, nSetRegistrationToken(mPtr, user, regToken));
     }
 
     public byte[] hashDocument(byte[] document) {
@@ -253,23 +432,47 @@ public class MPinMFA implements Closeable {
     }
 
     public Status startVerification(User user, String clientId, String accessCode) {
-        return nStartVerification(mPtr, user, clientId, accessCode);
+        return afterUserCall(user, nStartVerification(mPtr, user, clientId, accessCode));
     }
 
     public Status finishVerification(User user, String verificationCode, VerificationResult verificationResult) {
-        return nFinishVerification(mPtr, user, verificationCode, verificationResult);
+        return afterUserCall(user, nFinishVerification(mPtr, user, verificationCode, verificationResult));
     }
 
 
+    /**
+     * Complete a call that may have changed the state of a user: drop the cached snapshot of the user and map the status
+     * with {@link #checkDeadline(Status)}. Every call that passes a user to the core should return through here.
+     */
+    private static Status afterUserCall(User user, Status status) {
+        user.invalidateSnapshot();
+        return checkDeadline(status);
+    }
+
+    private static Status checkDeadline(Status status) {
+        if (status.getStatusCode() == Status.Code.NETWORK_ERROR) {
+            OperationContext operation = OperationContext.current();
+            if (operation != null && operation.isCanceled()) {
+                return new Status(Status.Code.CANCELED, status.getErrorMessage());
+            }
+            if (operation != null && operation.isDeadlineExceeded()) {
+                return new Status(Status.Code.DEADLINE_EXCEEDED, status.getErrorMessage());
+            }
+        }
+        return status;
+    }
+
     // Native methods from MPinSDKBase
 
     private native long nConstruct();
 
-    private native void nDestruct(long ptr);
+    private static native void nDestruct(long ptr);
 
-    private native Status nInit(long ptr, Map<String, String> config, Context context);
+    private static native long[] nGetNativeCounters();
 
-    private native void nAddCustomHeaders(long ptr, Map<String, String> customHeaders);
+    private native Status nInit(long ptr, byte[] config, Context context);
+
+    private native void nAddCustomHeaders(long ptr, byte[] customHeaders);
 
     private native void nClearCustomHeaders(long ptr);
 
@@ -351,6 +554,13 @@ public class MPinMFA implements Closeable {
 
     private native Status nListUsers(long ptr, List<User> users);
 
+    private native Status nListUsersPage(long ptr, int offset, int limit, List<User> users);
+
+    private native Status nVisitUsers(long ptr, UserVisitor visitor);
+
+    private native Status nListUsersFiltered(long ptr, String backend, String customerId, String appId, int state,
+                                             List<User> users);
+
     private native Status nSetRegistrationToken(long ptr, User user, String regToken);
 
     private native boolean nIsRegistrationTokenSet(long ptr, User user);
@@ -21,8 +21,6 @@ package com.miracl.mpinsdk;
 
 import android.content.Context;
 import android.net.Uri;
-import android.os.Handler;
-import android.os.HandlerThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
@@ -36,17 +34,34 @@ import com.miracl.mpinsdk.model.Status;
 import com.miracl.mpinsdk.model.Signature;
 import com.miracl.mpinsdk.model.User;
 import com.miracl.mpinsdk.model.VerificationResult;
+import com.miracl.mpinsdk.net.HTTPConnector;
 import com.miracl.mpinsdk.util.Hex;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 
 /**
- * Wrapper of {@link MPinMFA} that executes operations in a background thread.
+ * Wrapper of {@link MPinMFA} that executes operations in background threads. The operations that only read the stored
+ * users, {@link #getUsers(Callback)} and {@link #IsRegistrationTokenSet(User, Callback)}, run concurrently with each
+ * other. All other operations, such as the registration and authentication steps, are executed one at a time and
+ * exclude the reads while they run. The operations are executed in the order they are called, except that reads called
+ * one after another don't wait for each other.
+ * <p>
+ * The operations are executed with a {@link Priority}, {@link Priority#NORMAL} by default. Use
+ * {@link #withPriority(Priority)} to call operations with a different priority, for example to keep a prefetch from
+ * delaying the flow the user is waiting on.
+ * <p>
+ * Each operation returns an {@link OperationHandle}, through which it can be canceled. A canceled operation completes
+ * with {@link Status.Code#CANCELED}.
+ * <p>
+ * The callbacks are called on the thread that executes the operation, unless a callback executor is set with
+ * {@link #setCallbackExecutor(Executor)} or {@link #withCallbackExecutor(Executor)}. Without a callback executor, a
+ * {@link #getServiceDetails(String, Callback)} or {@link #getSessionDetails(String, Callback)} result that is shared
+ * from the coalescing window is given to the callback on the calling thread, before the method returns.
  */
 public class MPinMfaAsync {
 
@@ -55,18 +70,82 @@ public class MPinMfaAsync {
      */
     public static final String CLIENT_PARAM_DEVICE_NAME = "setDeviceName";
 
+    /**
+     * The default time budget of an operation in milliseconds.
+     */
+    public static final long DEFAULT_OPERATION_TIMEOUT_MS = 30 * 1000;
+
+    /**
+     * The default time in milliseconds for which a completed details request is shared with new callers.
+     */
+    public static final long DEFAULT_COALESCING_WINDOW_MS = 1000;
+
+    /**
+     * The default number of threads on which the operations that only read the SDK state are executed.
+     */
+    public static final int DEFAULT_READER_POOL_SIZE = 2;
+
+    /**
+     * The default time in milliseconds a waiting operation has to age to be ordered as an operation of the next higher
+     * priority.
+     */
+    public static final long DEFAULT_PRIORITY_AGING_MS = 1000;
+
     private static final String DEFAULT_SHARED_PREFS = "mpin-shared-prefs";
 
-    private MPinMFA       mMfaSdk;
-    private Handler       mWorkerHandler;
-    private HandlerThread mWorkerThread;
-    private MfaInfoCache  mMfaInfoCache;
+    static final String CANCELED_MESSAGE = "The operation was canceled";
+
+    // Calls the callbacks on the thread executing the operation, regardless of the executor set for the instance
+    static final Executor DIRECT_EXECUTOR = new Executor() {
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    private MPinMFA            mMfaSdk;
+    private OperationScheduler mScheduler;
+    private MfaInfoCache       mMfaInfoCache;
+    private Priority           mPriority;
+    private Executor           mCallbackExecutor;
+
+    // The instance created with the public constructor, which holds the settings shared with the derived instances
+    private MPinMfaAsync      mRoot;
+    private volatile Executor mDefaultCallbackExecutor;
+
+    private SingleFlight<ServiceDetails> mServiceDetailsFlights;
+    private SingleFlight<SessionDetails> mSessionDetailsFlights;
 
     static {
         System.loadLibrary("AndroidMpinSDK");
     }
 
 
+    /**
+     * The priority with which an operation is scheduled. Waiting operations of a higher priority are executed first, but
+     * operations age while they wait so that lower priorities are not starved. Operations of different priorities are not
+     * ordered relative to each other.
+     *
+     * @see #withPriority(Priority)
+     * @see #setPriorityAging(long)
+     */
+    public enum Priority {
+        /**
+         * Operations of a flow the user is waiting on
+         */
+        INTERACTIVE,
+        /**
+         * The default priority
+         */
+        NORMAL,
+        /**
+         * Prefetch and maintenance operations
+         */
+        BACKGROUND
+    }
+
+
     /**
      * Callback for SDK methods
      *
@@ -117,6 +196,54 @@ public class MPinMfaAsync {
     }
 
 
+    /**
+     * Calls the methods of a callback on an executor.
+     */
+    private static final class ExecutorCallback<T> extends Callback<T> {
+
+        private final Callback<T> mCallback;
+        private final Executor    mExecutor;
+
+        ExecutorCallback(Callback<T> callback, Executor executor) {
+            mCallback = callback;
+            mExecutor = executor;
+        }
+
+        @Override
+        protected void onResult(@NonNull final Status status, @Nullable final T result) {
+            mExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    mCallback.onResult(status, result);
+                }
+            });
+        }
+
+        @Override
+        protected void onSuccess(@Nullable final T result) {
+            mExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    mCallback.onSuccess(result);
+                }
+            });
+        }
+
+        @Override
+        protected void onFail(@NonNull final Status status) {
+            mExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    mCallback.onFail(status);
+                }
+            });
+        }
+    }
+
+
     /**
      * Create a new not initialized instance. Use of the init methods in order for the SDK methods to be usable.
      *
@@ -127,7 +254,73 @@ public class MPinMfaAsync {
         mMfaSdk = new MPinMFA();
         mMfaInfoCache = new MfaInfoCache(
           context.getApplicationContext().getSharedPreferences(DEFAULT_SHARED_PREFS, Context.MODE_PRIVATE));
-        initWorkerThread();
+        mPriority = Priority.NORMAL;
+        mRoot = this;
+        initScheduler();
+    }
+
+    private MPinMfaAsync(MPinMfaAsync other, Priority priority, Executor callbackExecutor) {
+        mMfaSdk = other.mMfaSdk;
+        mScheduler = other.mScheduler;
+        mMfaInfoCache = other.mMfaInfoCache;
+        mServiceDetailsFlights = other.mServiceDetailsFlights;
+        mSessionDetailsFlights = other.mSessionDetailsFlights;
+        mPriority = priority;
+        mCallbackExecutor = callbackExecutor;
+        mRoot = other.mRoot;
+    }
+
+    /**
+     * Obtain an instance that calls the operations of this instance with a priority. The instance shares the SDK, the
+     * operation queues and all settings with this instance, and releasing either of them releases both.
+     *
+     * @param priority
+     *   The priority of the operations called through the returned instance
+     */
+    public MPinMfaAsync withPriority(@NonNull Priority priority) {
+        return priority == mPriority ? this : new MPinMfaAsync(this, priority, mCallbackExecutor);
+    }
+
+    /**
+     * @return The priority of the operations called through this instance
+     */
+    public Priority getPriority() {
+        return mPriority;
+    }
+
+    /**
+     * Obtain an instance that calls the callbacks of its operations on an executor, regardless of the executor set with
+     * {@link #setCallbackExecutor(Executor)}. The instance shares the SDK, the operation queues and all settings with this
+     * instance, and releasing either of them releases both.
+     *
+     * @param executor
+     *   The executor for the callbacks of the operations called through the returned instance, or <code>null</code> to
+     *   use the executor set with {@link #setCallbackExecutor(Executor)}
+     */
+    public MPinMfaAsync withCallbackExecutor(@Nullable Executor executor) {
+        return executor == mCallbackExecutor ? this : new MPinMfaAsync(this, mPriority, executor);
+    }
+
+    /**
+     * Obtain the future based API of this instance, in which the operations return {@link OperationFuture futures} that
+     * can be chained into flows.
+     */
+    public MPinMfaFutures futures() {
+        return new MPinMfaFutures(this);
+    }
+
+    /**
+     * Set the executor on which the callbacks of the operations are called, for example
+     * {@link com.miracl.mpinsdk.util.MainThreadExecutor#getInstance()} to receive the results on the main thread without
+     * posting them from each callback. The callback of {@link #doInBackground(Callback)} is always called on the thread
+     * executing the operation.
+     *
+     * @param executor
+     *   The executor for the callbacks, or <code>null</code> to call them on the thread executing the operation, which
+     *   is the default
+     */
+    public void setCallbackExecutor(@Nullable Executor executor) {
+        mRoot.mDefaultCallbackExecutor = executor;
     }
 
 
@@ -175,6 +368,82 @@ public class MPinMfaAsync {
         }
     }
 
+    /**
+     * Set the total time budget of each operation, shared by all the requests the operation makes to the backend. The
+     * budget starts when the operation starts executing. An operation that runs out of its budget fails with
+     * {@link Status.Code#DEADLINE_EXCEEDED}.
+     *
+     * @param timeoutMs
+     *   The budget in milliseconds or <code>0</code> to limit only the individual requests
+     */
+    public void setOperationTimeout(long timeoutMs) {
+        mScheduler.setOperationTimeout(timeoutMs);
+    }
+
+    /**
+     * Set the number of threads on which the operations that only read the stored users are executed concurrently. The
+     * other operations are always executed one at a time.
+     *
+     * @param size
+     *   The number of threads, {@link #DEFAULT_READER_POOL_SIZE} by default
+     */
+    public void setReaderPoolSize(int size) {
+        mScheduler.setReaderPoolSize(size);
+    }
+
+    /**
+     * Set the time a waiting operation has to age to be ordered as an operation of the next higher {@link Priority}. A
+     * {@link Priority#BACKGROUND} operation waits only for the {@link Priority#INTERACTIVE} operations called less than
+     * two intervals after it, so a shorter interval bounds the wait of the lower priorities at the expense of the higher
+     * ones.
+     *
+     * @param intervalMs
+     *   The interval in milliseconds, {@link #DEFAULT_PRIORITY_AGING_MS} by default, or <code>0</code> to execute the
+     *   operations in the order they are called regardless of their priority
+     */
+    public void setPriorityAging(long intervalMs) {
+        mScheduler.setAgingInterval(intervalMs);
+    }
+
+    /**
+     * Get the state of the queue of the operations with a priority.
+     *
+     * @param priority
+     *   The priority of the operations
+     */
+    public QueueStats getQueueStats(@NonNull Priority priority) {
+        return mScheduler.getQueueStats(priority);
+    }
+
+    /**
+     * Prepare a connection to a backend ahead of the requests to it, for example when an access code is received and the
+     * user is about to enter their PIN. The DNS resolution and the TCP/TLS handshake are made in the background, without
+     * delaying the operations, and the following requests to the backend reuse the connection. With the default transport
+     * the connection is kept only if connection reuse is enabled with {@link MPinMFA#setConnectionReuse}.
+     *
+     * @param backendUrl
+     *   The URL of the backend, as set with {@link #setBackend(ServiceDetails, Callback)}
+     */
+    public void prewarm(@NonNull String backendUrl) {
+        HTTPConnector.prewarm(backendUrl);
+    }
+
+    /**
+     * Set the time for which the result of a completed {@link #getServiceDetails(String, Callback)} or
+     * {@link #getSessionDetails(String, Callback)} is given to new callers for the same service URL or access code. Calls
+     * made while a request for the same key is in progress always share its result.
+     *
+     * @param windowMs
+     *   The window in milliseconds or <code>0</code> to share only the results of the requests in progress
+     */
+    public void setCoalescingWindow(long windowMs) {
+        if (windowMs < 0) {
+            throw new IllegalArgumentException();
+        }
+        mServiceDetailsFlights.setResultWindow(windowMs);
+        mSessionDetailsFlights.setResultWindow(windowMs);
+    }
+
     /**
      * Set the customer ID.
      *
@@ -183,15 +452,16 @@ public class MPinMfaAsync {
      * @param callback
      *   The callback for the operation. Can be <code>null</code> and the operation will still be executed.
      */
-    public void setCid(@NonNull final String cid, @Nullable final Callback<Void> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle setCid(@NonNull final String cid, @Nullable final Callback<Void> callback) {
+        final Callback<Void> resultCallback = deliver(callback);
+        return postWrite("setCid", resultCallback, new Runnable() {
 
             @Override
             public void run() {
                 mMfaSdk.setCid(cid);
 
-                if (callback != null) {
-                    callback.onSuccess(null);
+                if (resultCallback != null) {
+                    resultCallback.onSuccess(null);
                 }
             }
         });
@@ -208,16 +478,17 @@ public class MPinMfaAsync {
      *   The callback for the operation. Can be <code>null</code> and the operation will still be executed.
      * @see #setBackend(ServiceDetails, Callback)
      */
-    public void addTrustedDomains(@NonNull final String[] domains, @Nullable final Callback<Void> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle addTrustedDomains(@NonNull final String[] domains, @Nullable final Callback<Void> callback) {
+        final Callback<Void> resultCallback = deliver(callback);
+        return postWrite("addTrustedDomains", resultCallback, new Runnable() {
 
             @Override
             public void run() {
                 for (String domain : domains) {
                     mMfaSdk.addTrustedDomain(domain);
                 }
-                if (callback != null) {
-                    callback.onSuccess(null);
+                if (resultCallback != null) {
+                    resultCallback.onSuccess(null);
                 }
             }
         });
@@ -231,14 +502,15 @@ public class MPinMfaAsync {
      * @param callback
      *   The callback for the operation. Can be <code>null</code> and the operation will still be executed.
      */
-    public void addCustomHeaders(@NonNull final Map<String, String> customHeaders, @Nullable final Callback<Void> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle addCustomHeaders(@NonNull final Map<String, String> customHeaders, @Nullable final Callback<Void> callback) {
+        final Callback<Void> resultCallback = deliver(callback);
+        return postWrite("addCustomHeaders", resultCallback, new Runnable() {
 
             @Override
             public void run() {
                 mMfaSdk.addCustomHeaders(customHeaders);
-                if (callback != null) {
-                    callback.onSuccess(null);
+                if (resultCallback != null) {
+                    resultCallback.onSuccess(null);
                 }
             }
         });
@@ -252,12 +524,13 @@ public class MPinMfaAsync {
      * @param callback
      *   Callback containing the result of the check.
      */
-    public void isUserExisting(@NonNull final String id, @NonNull final Callback<Boolean> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle isUserExisting(@NonNull final String id, @NonNull final Callback<Boolean> callback) {
+        final Callback<Boolean> resultCallback = deliver(callback);
+        return postWrite("isUserExisting", resultCallback, new Runnable() {
 
             @Override
             public void run() {
-                callback.onSuccess(mMfaSdk.isUserExisting(id));
+                resultCallback.onSuccess(mMfaSdk.isUserExisting(id));
             }
         });
     }
@@ -272,13 +545,14 @@ public class MPinMfaAsync {
      * @param callback
      *   Callback containing the result of the check.
      */
-    public void isUserExisting(@NonNull final String id, @NonNull final String customerId,
-                               @NonNull final Callback<Boolean> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle isUserExisting(@NonNull final String id, @NonNull final String customerId,
+                                          @NonNull final Callback<Boolean> callback) {
+        final Callback<Boolean> resultCallback = deliver(callback);
+        return postWrite("isUserExisting", resultCallback, new Runnable() {
 
             @Override
             public void run() {
-                callback.onSuccess(mMfaSdk.isUserExisting(id, customerId));
+                resultCallback.onSuccess(mMfaSdk.isUserExisting(id, customerId));
             }
         });
     }
@@ -295,13 +569,14 @@ public class MPinMfaAsync {
      * @param callback
      *   Callback containing the result of the check.
      */
-    public void isUserExisting(@NonNull final String id, @NonNull final String customerId, @NonNull final String appId,
-                               @NonNull final Callback<Boolean> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle isUserExisting(@NonNull final String id, @NonNull final String customerId,
+                                          @NonNull final String appId, @NonNull final Callback<Boolean> callback) {
+        final Callback<Boolean> resultCallback = deliver(callback);
+        return postWrite("isUserExisting", resultCallback, new Runnable() {
 
             @Override
             public void run() {
-                callback.onSuccess(mMfaSdk.isUserExisting(id, customerId, appId));
+                resultCallback.onSuccess(mMfaSdk.isUserExisting(id, customerId, appId));
             }
         });
     }
@@ -318,15 +593,16 @@ public class MPinMfaAsync {
      * @param callback
      *   Callback for the operation
      */
-    public void startVerification(final @NonNull User user, final @NonNull String clientId, final @NonNull String accessCode, @NonNull final Callback<Void> callback){
+    public OperationHandle startVerification(final @NonNull User user, final @NonNull String clientId, final @NonNull String accessCode, @NonNull final Callback<Void> callback){
+        final Callback<Void> resultCallback = deliver(callback);
 
-        mWorkerHandler.post(new Runnable() {
+        return postWrite("startVerification", resultCallback, new Runnable() {
 
             @Override
             public void run(){
                 Status status = mMfaSdk.startVerification(user, clientId,accessCode);
-                if (callback != null) {
-                    callback.onResult(status, null);
+                if (resultCallback != null) {
+                    resultCallback.onResult(status, null);
                 }
             }
         });
@@ -342,15 +618,16 @@ public class MPinMfaAsync {
      * @param callback
      *   Callback with the retrieved verification result
      */
-    public void finishVerification(final @NonNull User user, final @NonNull String verificationCode, @NonNull final Callback<VerificationResult> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle finishVerification(final @NonNull User user, final @NonNull String verificationCode, @NonNull final Callback<VerificationResult> callback) {
+        final Callback<VerificationResult> resultCallback = deliver(callback);
+        return postWrite("finishVerification", resultCallback, new Runnable() {
 
             @Override
             public void run(){
                 VerificationResult verificationResult = new VerificationResult();
                 Status status = mMfaSdk.finishVerification(user, verificationCode, verificationResult);
-                if (callback != null) {
-                    callback.onResult(status, verificationResult);
+                if (resultCallback != null) {
+                    resultCallback.onResult(status, verificationResult);
                 }
             }
         });
@@ -365,7 +642,7 @@ public class MPinMfaAsync {
     //  *   Callback for the operation. Can be <code>null</code>.
     //  */
     // public void setBackend(@NonNull final User user, @Nullable final Callback<Void> callback) {
-    //     mWorkerHandler.post(new Runnable() {
+    //     postWrite("setBackend", new Runnable() {
 
     //         @Override
     //         public void run() {
@@ -387,15 +664,17 @@ public class MPinMfaAsync {
      * @param callback
      *   The callback for the operation. Can be <code>null</code> and the operation will still be executed.
      */
-    public void setBackend(@NonNull final ServiceDetails serviceDetails, @Nullable final Callback<Void> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle setBackend(@NonNull final ServiceDetails serviceDetails,
+                                      @Nullable final Callback<Void> callback) {
+        final Callback<Void> resultCallback = deliver(callback);
+        return postWrite("setBackend", resultCallback, new Runnable() {
 
             @Override
             public void run() {
                 Status status = mMfaSdk.setBackend(serviceDetails.backendUrl);
 
-                if (callback != null) {
-                    callback.onResult(status, null);
+                if (resultCallback != null) {
+                    resultCallback.onResult(status, null);
                 }
             }
         });
@@ -414,9 +693,10 @@ public class MPinMfaAsync {
      *   be <code>null</code> and the operation will still be executed.
      * @see #startRegistration(String, User, Callback)
      */
-    public void makeNewUser(final @NonNull String userId, final @Nullable String deviceName,
-                            @Nullable final Callback<User> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle makeNewUser(final @NonNull String userId, final @Nullable String deviceName,
+                                       @Nullable final Callback<User> callback) {
+        final Callback<User> resultCallback = deliver(callback);
+        return postWrite("makeNewUser", resultCallback, new Runnable() {
 
             @Override
             public void run() {
@@ -426,8 +706,8 @@ public class MPinMfaAsync {
                 } else {
                     user = mMfaSdk.makeNewUser(userId);
                 }
-                if (callback != null) {
-                    callback.onResult(new Status(Status.Code.OK, null), user);
+                if (resultCallback != null) {
+                    resultCallback.onResult(new Status(Status.Code.OK, null), user);
                 }
             }
         });
@@ -442,8 +722,9 @@ public class MPinMfaAsync {
      * @param callback
      *   The callback for the operation. Can be <code>null</code> and the operation will still be executed.
      */
-    public void deleteUser(@NonNull final User user, @Nullable final Callback<Void> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle deleteUser(@NonNull final User user, @Nullable final Callback<Void> callback) {
+        final Callback<Void> resultCallback = deliver(callback);
+        return postWrite("deleteUser", resultCallback, new Runnable() {
 
             @Override
             public void run() {
@@ -451,8 +732,8 @@ public class MPinMfaAsync {
                 mMfaInfoCache.removeFromLastOtpUser(user);
                 mMfaInfoCache.removeExpiration(user);
                 mMfaSdk.deleteUser(user);
-                if (callback != null) {
-                    callback.onResult(new Status(Status.Code.OK, null), null);
+                if (resultCallback != null) {
+                    resultCallback.onResult(new Status(Status.Code.OK, null), null);
                 }
             }
         });
@@ -466,16 +747,17 @@ public class MPinMfaAsync {
      * @param callback
      *   The callback for the operation. Can be <code>null</code> and the operation will still be executed.
      */
-    public void getAccessCode(@NonNull final String authUrl, @Nullable final Callback<String> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle getAccessCode(@NonNull final String authUrl, @Nullable final Callback<String> callback) {
+        final Callback<String> resultCallback = deliver(callback);
+        return postWrite("getAccessCode", resultCallback, new Runnable() {
 
             @Override
             public void run() {
                 StringBuilder code = new StringBuilder();
                 Status status = mMfaSdk.getAccessCode(authUrl, code);
 
-                if (callback != null) {
-                    callback.onResult(status, code.toString());
+                if (resultCallback != null) {
+                    resultCallback.onResult(status, code.toString());
                 }
             }
         });
@@ -494,9 +776,9 @@ public class MPinMfaAsync {
      * @see #confirmRegistration(User, Callback)
      * @see #finishRegistration(User, String[], Callback)
      */
-    public void startRegistration(@NonNull final String accessCode, final @NonNull User user,
-                                  @Nullable final Callback<Void> callback) {
-        startRegistration(accessCode, user, null, null, callback);
+    public OperationHandle startRegistration(@NonNull final String accessCode, final @NonNull User user,
+                                             @Nullable final Callback<Void> callback) {
+        return startRegistration(accessCode, user, null, null, callback);
     }
 
     /**
@@ -514,9 +796,10 @@ public class MPinMfaAsync {
      * @see #confirmRegistration(User, Callback)
      * @see #finishRegistration(User, String[], Callback)
      */
-    public void startRegistration(@NonNull final String accessCode, final @NonNull User user,
-                                  @Nullable final String pushToken, @Nullable final Callback<Void> callback) {
-        startRegistration(accessCode, user, pushToken, null, callback);
+    public OperationHandle startRegistration(@NonNull final String accessCode, final @NonNull User user,
+                                             @Nullable final String pushToken,
+                                             @Nullable final Callback<Void> callback) {
+        return startRegistration(accessCode, user, pushToken, null, callback);
     }
 
     /**
@@ -536,10 +819,11 @@ public class MPinMfaAsync {
      * @see #confirmRegistration(User, Callback)
      * @see #finishRegistration(User, String[], Callback)
      */
-    public void startRegistration(@NonNull final String accessCode, final @NonNull User user,
-                                  @Nullable final String pushToken, @Nullable final String regCode,
-                                  @Nullable final Callback<Void> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle startRegistration(@NonNull final String accessCode, final @NonNull User user,
+                                             @Nullable final String pushToken, @Nullable final String regCode,
+                                             @Nullable final Callback<Void> callback) {
+        final Callback<Void> resultCallback = deliver(callback);
+        return postWrite("startRegistration", resultCallback, new Runnable() {
 
             @Override
             public void run() {
@@ -558,8 +842,8 @@ public class MPinMfaAsync {
                 if (status.getStatusCode() == Status.Code.OK) {
                     mMfaInfoCache.putExpiration(user);
                 }
-                if (callback != null) {
-                    callback.onResult(status, null);
+                if (resultCallback != null) {
+                    resultCallback.onResult(status, null);
                 }
             }
         });
@@ -580,9 +864,10 @@ public class MPinMfaAsync {
      * @see #confirmRegistration(User, Callback)
      * @see #finishRegistration(User, String[], Callback)
      */
-    public void startRegistration(@NonNull final String accessCode, @NonNull final String userId,
-                                  @Nullable final String deviceName, @NonNull final Callback<User> callback) {
-        startRegistration(accessCode, userId, deviceName, null, null, callback);
+    public OperationHandle startRegistration(@NonNull final String accessCode, @NonNull final String userId,
+                                             @Nullable final String deviceName,
+                                             @NonNull final Callback<User> callback) {
+        return startRegistration(accessCode, userId, deviceName, null, null, callback);
     }
 
     /**
@@ -602,10 +887,10 @@ public class MPinMfaAsync {
      * @see #confirmRegistration(User, Callback)
      * @see #finishRegistration(User, String[], Callback)
      */
-    public void startRegistration(@NonNull final String accessCode, @NonNull final String userId,
-                                  @Nullable final String deviceName, @Nullable final String pushToken,
-                                  @NonNull final Callback<User> callback) {
-        startRegistration(accessCode, userId, deviceName, pushToken, null, callback);
+    public OperationHandle startRegistration(@NonNull final String accessCode, @NonNull final String userId,
+                                             @Nullable final String deviceName, @Nullable final String pushToken,
+                                             @NonNull final Callback<User> callback) {
+        return startRegistration(accessCode, userId, deviceName, pushToken, null, callback);
     }
 
     /**
@@ -627,10 +912,11 @@ public class MPinMfaAsync {
      * @see #confirmRegistration(User, Callback)
      * @see #finishRegistration(User, String[], Callback)
      */
-    public void startRegistration(@NonNull final String accessCode, @NonNull final String userId,
-                                  @Nullable final String deviceName, @Nullable final String pushToken,
-                                  @Nullable final String regCode, @NonNull final Callback<User> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle startRegistration(@NonNull final String accessCode, @NonNull final String userId,
+                                             @Nullable final String deviceName, @Nullable final String pushToken,
+                                             @Nullable final String regCode, @NonNull final Callback<User> callback) {
+        final Callback<User> resultCallback = deliver(callback);
+        return postWrite("startRegistration", resultCallback, new Runnable() {
 
             @Override
             public void run() {
@@ -646,7 +932,7 @@ public class MPinMfaAsync {
 
                     @Override
                     protected void onResult(Status status, Void result) {
-                        callback.onResult(status, user);
+                        resultCallback.onResult(status, user);
                     }
                 });
             }
@@ -666,8 +952,9 @@ public class MPinMfaAsync {
      * @see #confirmRegistration(User, Callback)
      * @see #finishRegistration(User, String[], Callback)
      */
-    public void restartRegistration(@NonNull final User user, final @Nullable Callback<Void> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle restartRegistration(@NonNull final User user, final @Nullable Callback<Void> callback) {
+        final Callback<Void> resultCallback = deliver(callback);
+        return postWrite("restartRegistration", resultCallback, new Runnable() {
 
             @Override
             public void run() {
@@ -677,8 +964,8 @@ public class MPinMfaAsync {
                     mMfaInfoCache.invalidateExpiration(user, false);
                 }
 
-                if (callback != null) {
-                    callback.onResult(status, null);
+                if (resultCallback != null) {
+                    resultCallback.onResult(status, null);
                 }
             }
         });
@@ -697,8 +984,9 @@ public class MPinMfaAsync {
      * @see #restartRegistration(User, Callback)
      * @see #finishRegistration(User, String[], Callback)
      */
-    public void confirmRegistration(@NonNull final User user, final @Nullable Callback<Void> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle confirmRegistration(@NonNull final User user, final @Nullable Callback<Void> callback) {
+        final Callback<Void> resultCallback = deliver(callback);
+        return postWrite("confirmRegistration", resultCallback, new Runnable() {
 
             @Override
             public void run() {
@@ -710,8 +998,8 @@ public class MPinMfaAsync {
                     mMfaInfoCache.invalidateExpiration(user, false);
                 }
 
-                if (callback != null) {
-                    callback.onResult(status, null);
+                if (resultCallback != null) {
+                    resultCallback.onResult(status, null);
                 }
             }
         });
@@ -732,9 +1020,10 @@ public class MPinMfaAsync {
      * @see #restartRegistration(User, Callback)
      * @see #confirmRegistration(User, Callback)
      */
-    public void finishRegistration(@NonNull final User user, @NonNull final String[] factors,
-                                   @Nullable final Callback<Void> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle finishRegistration(@NonNull final User user, @NonNull final String[] factors,
+                                              @Nullable final Callback<Void> callback) {
+        final Callback<Void> resultCallback = deliver(callback);
+        return postWrite("finishRegistration", resultCallback, new Runnable() {
 
             @Override
             public void run() {
@@ -742,8 +1031,8 @@ public class MPinMfaAsync {
                 if (status.getStatusCode() == Status.Code.OK) {
                     mMfaInfoCache.removeExpiration(user);
                 }
-                if (callback != null) {
-                    callback.onResult(status, null);
+                if (resultCallback != null) {
+                    resultCallback.onResult(status, null);
                 }
             }
         });
@@ -763,9 +1052,11 @@ public class MPinMfaAsync {
      * @see #confirmRegistration(User, Callback)
      * @see #finishRegistration(User, String[], Callback)
      */
-    public void startNewRegistration(@NonNull final String accessCode, @NonNull final User user,
-                                     @Nullable final String deviceName, @Nullable final Callback<User> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle startNewRegistration(@NonNull final String accessCode, @NonNull final User user,
+                                                @Nullable final String deviceName,
+                                                @Nullable final Callback<User> callback) {
+        final Callback<User> resultCallback = deliver(callback);
+        return postWrite("startNewRegistration", resultCallback, new Runnable() {
 
             @Override
             public void run() {
@@ -783,12 +1074,12 @@ public class MPinMfaAsync {
                         mMfaInfoCache.putExpiration(newUser);
                     }
 
-                    if (callback != null) {
-                        callback.onResult(startRegistrationStatus, newUser);
+                    if (resultCallback != null) {
+                        resultCallback.onResult(startRegistrationStatus, newUser);
                     }
                 } else {
-                    if (callback != null) {
-                        callback.onResult(setBackendStatus, user);
+                    if (resultCallback != null) {
+                        resultCallback.onResult(setBackendStatus, user);
                     }
                 }
             }
@@ -810,15 +1101,16 @@ public class MPinMfaAsync {
      * @see #finishRegistrationDvs(User, String[], Callback)
      * @see User#canSign()
      */
-    public void startRegistrationDvs(@NonNull final User user, @NonNull final String[] multiFactor,
-                                     @Nullable final Callback<Void> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle startRegistrationDvs(@NonNull final User user, @NonNull final String[] multiFactor,
+                                                @Nullable final Callback<Void> callback) {
+        final Callback<Void> resultCallback = deliver(callback);
+        return postWrite("startRegistrationDvs", resultCallback, new Runnable() {
 
             @Override
             public void run() {
                 Status status = mMfaSdk.startRegistrationDvs(user, multiFactor);
-                if (callback != null) {
-                    callback.onResult(status, null);
+                if (resultCallback != null) {
+                    resultCallback.onResult(status, null);
                 }
             }
         });
@@ -838,15 +1130,16 @@ public class MPinMfaAsync {
      * @see #startRegistrationDvs(User, String[], Callback)
      * @see User#canSign()
      */
-    public void finishRegistrationDvs(@NonNull final User user, @NonNull final String[] multiFactor,
-                                      @Nullable final Callback<Void> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle finishRegistrationDvs(@NonNull final User user, @NonNull final String[] multiFactor,
+                                                 @Nullable final Callback<Void> callback) {
+        final Callback<Void> resultCallback = deliver(callback);
+        return postWrite("finishRegistrationDvs", resultCallback, new Runnable() {
 
             @Override
             public void run() {
                 Status status = mMfaSdk.finishRegistrationDvs(user, multiFactor);
-                if (callback != null) {
-                    callback.onResult(status, null);
+                if (resultCallback != null) {
+                    resultCallback.onResult(status, null);
                 }
             }
         });
@@ -868,18 +1161,20 @@ public class MPinMfaAsync {
      *   The callback for the operation
      * @see User#canSign()
      */
-    public void sign(@NonNull final User user, @NonNull final byte[] documentHash, @NonNull final String[] multiFactor,
-                     final int timestamp, @NonNull final Callback<Signature> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle sign(@NonNull final User user, @NonNull final byte[] documentHash,
+                                @NonNull final String[] multiFactor, final int timestamp,
+                                @NonNull final Callback<Signature> callback) {
+        final Callback<Signature> resultCallback = deliver(callback);
+        return postWrite("sign", resultCallback, new Runnable() {
 
             @Override
             public void run() {
                 Signature signature = new Signature();
 
                 try {
-                    callback.onResult(mMfaSdk.sign(user, documentHash, multiFactor, timestamp, signature), signature);
+                    resultCallback.onResult(mMfaSdk.sign(user, documentHash, multiFactor, timestamp, signature), signature);
                 } catch (Exception e) {
-                    callback.onResult(new Status(Status.Code.RESPONSE_PARSE_ERROR, e.getMessage()), signature);
+                    resultCallback.onResult(new Status(Status.Code.RESPONSE_PARSE_ERROR, e.getMessage()), signature);
                 }
             }
         });
@@ -895,30 +1190,41 @@ public class MPinMfaAsync {
      * @param callback
      *   The callback for the operation
      */
-    public void verifyDocumentHash(@NonNull final byte[] document, @NonNull final byte[] documentHash,
-                                   final @NonNull Callback<Boolean> callback) {
+    public OperationHandle verifyDocumentHash(@NonNull final byte[] document, @NonNull final byte[] documentHash,
+                                              final @NonNull Callback<Boolean> callback) {
+        final Callback<Boolean> resultCallback = deliver(callback);
         final String documentHashString = new String(documentHash).toLowerCase(Locale.getDefault());
         final String hashedDocument = Hex.encode(mMfaSdk.hashDocument(document));
 
-        mWorkerHandler.post(new Runnable() {
+        return postRead("verifyDocumentHash", resultCallback, new Runnable() {
             @Override
             public void run() {
-                callback.onResult(new Status(Status.Code.OK, ""), documentHashString.equals(hashedDocument));
+                resultCallback.onResult(new Status(Status.Code.OK, ""), documentHashString.equals(hashedDocument));
             }
         });
     }
 
     /**
-     * Get {@link SessionDetails details} (app and customer info) for a session with access code.
+     * Get {@link SessionDetails details} (app and customer info) for a session with access code. Concurrent calls for the
+     * same access code share a single request and each receive a copy of its result.
      *
      * @param accessCode
      *   A valid access code
      * @param callback
      *   Callback with the retrieved session details
      * @see SessionDetails
+     * @see #setCoalescingWindow(long)
      */
-    public void getSessionDetails(@NonNull final String accessCode, @NonNull final Callback<SessionDetails> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle getSessionDetails(@NonNull final String accessCode,
+                                             @NonNull final Callback<SessionDetails> callback) {
+        final Callback<SessionDetails> resultCallback = deliver(callback);
+        SingleFlight<SessionDetails>.Caller caller = mSessionDetailsFlights.join(accessCode, resultCallback);
+        if (!caller.isLeader()) {
+            return caller;
+        }
+
+        final Callback<SessionDetails> completion = caller.getCompletion();
+        caller.setExecution(postWrite("getSessionDetails", completion, new Runnable() {
 
             @Override
             public void run() {
@@ -928,22 +1234,33 @@ public class MPinMfaAsync {
                     mMfaInfoCache
                       .putCustomerInfo(sessionDetails.customerId, sessionDetails.customerName, sessionDetails.customerIconUrl);
                 }
-                callback.onResult(status, sessionDetails);
+                completion.onResult(status, sessionDetails);
             }
-        });
+        }));
+        return caller;
     }
 
     /**
-     * Get {@link ServiceDetails details} (name, logo, etc) for a service.
+     * Get {@link ServiceDetails details} (name, logo, etc) for a service. Concurrent calls for the same service share a
+     * single request and each receive a copy of its result.
      *
      * @param serviceUrl
      *   The service's url
      * @param callback
      *   Callback with the retrieved details
      * @see ServiceDetails
+     * @see #setCoalescingWindow(long)
      */
-    public void getServiceDetails(@NonNull final String serviceUrl, @NonNull final Callback<ServiceDetails> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle getServiceDetails(@NonNull final String serviceUrl,
+                                             @NonNull final Callback<ServiceDetails> callback) {
+        final Callback<ServiceDetails> resultCallback = deliver(callback);
+        SingleFlight<ServiceDetails>.Caller caller = mServiceDetailsFlights.join(serviceUrl, resultCallback);
+        if (!caller.isLeader()) {
+            return caller;
+        }
+
+        final Callback<ServiceDetails> completion = caller.getCompletion();
+        caller.setExecution(postWrite("getServiceDetails", completion, new Runnable() {
 
             @Override
             public void run() {
@@ -952,9 +1269,10 @@ public class MPinMfaAsync {
                 if (status.getStatusCode() == Status.Code.OK) {
                     mMfaInfoCache.putServiceDetails(serviceDetails);
                 }
-                callback.onResult(status, serviceDetails);
+                completion.onResult(status, serviceDetails);
             }
-        });
+        }));
+        return caller;
     }
 
 
@@ -969,15 +1287,16 @@ public class MPinMfaAsync {
      *   Callback for the operation
      * @see #finishAuthentication(User, String[], String, Callback)
      */
-    public void startAuthentication(@NonNull final User user, @NonNull final String accessCode,
-                                    @NonNull final Callback<Void> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle startAuthentication(@NonNull final User user, @NonNull final String accessCode,
+                                               @NonNull final Callback<Void> callback) {
+        final Callback<Void> resultCallback = deliver(callback);
+        return postWrite("startAuthentication", resultCallback, new Runnable() {
 
             @Override
             public void run() {
                 Status status = mMfaSdk.startAuthentication(user, accessCode);
 
-                callback.onResult(status, null);
+                resultCallback.onResult(status, null);
             }
         });
     }
@@ -997,9 +1316,10 @@ public class MPinMfaAsync {
      *   Callback for the operation
      * @see #startAuthentication(User, String, Callback)
      */
-    public void finishAuthentication(@NonNull final User user, @NonNull final String[] factors, @NonNull final String accessCode,
-                                     @NonNull final Callback<Void> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle finishAuthentication(@NonNull final User user, @NonNull final String[] factors, @NonNull final String accessCode,
+                                                @NonNull final Callback<Void> callback) {
+        final Callback<Void> resultCallback = deliver(callback);
+        return postWrite("finishAuthentication", resultCallback, new Runnable() {
 
             @Override
             public void run() {
@@ -1007,7 +1327,7 @@ public class MPinMfaAsync {
                 if (status.getStatusCode() == Status.Code.OK) {
                     mMfaInfoCache.putLastLoggedInUser(user);
                 }
-                callback.onResult(status, null);
+                resultCallback.onResult(status, null);
             }
         });
     }
@@ -1027,9 +1347,10 @@ public class MPinMfaAsync {
      *   Callback for the operation with the authentication code
      * @see #startAuthentication(User, String, Callback)
      */
-    public void finishAuthenticationAuthCode(@NonNull final User user, @NonNull final String[] factors,
-                                             @NonNull final String accessCode, @NonNull final Callback<String> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle finishAuthenticationAuthCode(@NonNull final User user, @NonNull final String[] factors,
+                                                        @NonNull final String accessCode, @NonNull final Callback<String> callback) {
+        final Callback<String> resultCallback = deliver(callback);
+        return postWrite("finishAuthenticationAuthCode", resultCallback, new Runnable() {
 
             @Override
             public void run() {
@@ -1038,7 +1359,7 @@ public class MPinMfaAsync {
                 if (status.getStatusCode() == Status.Code.OK) {
                     mMfaInfoCache.putLastLoggedInUser(user);
                 }
-                callback.onResult(status, authCode.toString());
+                resultCallback.onResult(status, authCode.toString());
             }
         });
     }
@@ -1052,14 +1373,15 @@ public class MPinMfaAsync {
      *   Callback for the operation
      * @see #finishAuthenticationOtp(User, String[], Callback)
      */
-    public void startAuthenticationOtp(@NonNull final User user, @NonNull final Callback<Void> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle startAuthenticationOtp(@NonNull final User user, @NonNull final Callback<Void> callback) {
+        final Callback<Void> resultCallback = deliver(callback);
+        return postWrite("startAuthenticationOtp", resultCallback, new Runnable() {
 
             @Override
             public void run() {
                 Status status = mMfaSdk.startAuthenticationOtp(user);
 
-                callback.onResult(status, null);
+                resultCallback.onResult(status, null);
             }
         });
     }
@@ -1077,9 +1399,10 @@ public class MPinMfaAsync {
      * @see #startAuthenticationOtp(User, Callback)
      * @see OTP
      */
-    public void finishAuthenticationOtp(@NonNull final User user, @NonNull final String[] factors,
-                                        @NonNull final Callback<OTP> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle finishAuthenticationOtp(@NonNull final User user, @NonNull final String[] factors,
+                                                   @NonNull final Callback<OTP> callback) {
+        final Callback<OTP> resultCallback = deliver(callback);
+        return postWrite("finishAuthenticationOtp", resultCallback, new Runnable() {
 
             @Override
             public void run() {
@@ -1088,7 +1411,7 @@ public class MPinMfaAsync {
                 if (status.getStatusCode() == Status.Code.OK) {
                     mMfaInfoCache.putLastOtpUser(user);
                 }
-                callback.onResult(status, otp);
+                resultCallback.onResult(status, otp);
             }
         });
     }
@@ -1102,13 +1425,15 @@ public class MPinMfaAsync {
      *   Callback for the operation
      * @see #finishAuthenticationRegCode(User, String[], Callback)
      */
-    public void startAuthenticationRegCode(@NonNull final User user, @NonNull final Callback<Void> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle startAuthenticationRegCode(@NonNull final User user,
+                                                      @NonNull final Callback<Void> callback) {
+        final Callback<Void> resultCallback = deliver(callback);
+        return postWrite("startAuthenticationRegCode", resultCallback, new Runnable() {
 
             @Override
             public void run() {
                 Status status = mMfaSdk.startAuthenticationRegCode(user);
-                callback.onResult(status, null);
+                resultCallback.onResult(status, null);
             }
         });
     }
@@ -1125,15 +1450,16 @@ public class MPinMfaAsync {
      *   Callback with the generated registration code
      * @see #startAuthenticationRegCode(User, Callback)
      */
-    public void finishAuthenticationRegCode(@NonNull final User user, @NonNull final String[] factors,
-                                        @NonNull final Callback<RegCode> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle finishAuthenticationRegCode(@NonNull final User user, @NonNull final String[] factors,
+                                                   @NonNull final Callback<RegCode> callback) {
+        final Callback<RegCode> resultCallback = deliver(callback);
+        return postWrite("finishAuthenticationRegCode", resultCallback, new Runnable() {
 
             @Override
             public void run() {
                 RegCode regCode = new RegCode();
                 Status status = mMfaSdk.finishAuthenticationRegCode(user, factors, regCode);
-                callback.onResult(status, regCode);
+                resultCallback.onResult(status, regCode);
             }
         });
     }
@@ -1146,14 +1472,15 @@ public class MPinMfaAsync {
      * @param callback
      *   The callback for the operation. Can be <code>null</code> and the operation will still be executed.
      */
-    public void abortSession(@NonNull final String accessCode, @Nullable final Callback<Void> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle abortSession(@NonNull final String accessCode, @Nullable final Callback<Void> callback) {
+        final Callback<Void> resultCallback = deliver(callback);
+        return postWrite("abortSession", resultCallback, new Runnable() {
 
             @Override
             public void run() {
                 Status status = mMfaSdk.abortSession(accessCode);
-                if (callback != null) {
-                    callback.onResult(status, null);
+                if (resultCallback != null) {
+                    resultCallback.onResult(status, null);
                 }
             }
         });
@@ -1165,14 +1492,38 @@ public class MPinMfaAsync {
      * @param callback
      *   The callback for the operation
      */
-    public void getUsers(@NonNull final Callback<List<User>> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle getUsers(@NonNull final Callback<List<User>> callback) {
+        final Callback<List<User>> resultCallback = deliver(callback);
+        return postRead("getUsers", resultCallback, new Runnable() {
 
             @Override
             public void run() {
                 List<User> users = new ArrayList<>();
                 Status status = mMfaSdk.listUsers(users);
-                callback.onResult(status, users);
+                resultCallback.onResult(status, users);
+            }
+        });
+    }
+
+    /**
+     * Get a page of the stored users.
+     *
+     * @param offset
+     *   The index of the first user in the page
+     * @param limit
+     *   The maximum number of users in the page
+     * @param callback
+     *   The callback for the operation
+     */
+    public OperationHandle getUsers(final int offset, final int limit, @NonNull final Callback<List<User>> callback) {
+        final Callback<List<User>> resultCallback = deliver(callback);
+        return postRead("getUsers", resultCallback, new Runnable() {
+
+            @Override
+            public void run() {
+                List<User> users = new ArrayList<>();
+                Status status = mMfaSdk.listUsers(offset, limit, users);
+                resultCallback.onResult(status, users);
             }
         });
     }
@@ -1187,35 +1538,40 @@ public class MPinMfaAsync {
      * @param callback
      *   The callback for the operation
      */
-    public void getUsers(@NonNull final String backendUrl, @Nullable final String customerId,
-                         @NonNull final Callback<List<User>> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle getUsers(@NonNull final String backendUrl, @Nullable final String customerId,
+                                    @NonNull final Callback<List<User>> callback) {
+        return getUsers(backendUrl, customerId, null, null, callback);
+    }
+
+    /**
+     * Get a list of the users for a backend that match all of the given criteria. The users are filtered by the native
+     * SDK, so no objects are created for the users that don't match.
+     *
+     * @param backendUrl
+     *   The backend with which the users are associated with
+     * @param customerId
+     *   The customer id with which the users are associated with, or <code>null</code> to match any customer
+     * @param appId
+     *   The app id with which the users are associated with, or <code>null</code> to match any app
+     * @param state
+     *   The state of the users, or <code>null</code> to match any state
+     * @param callback
+     *   The callback for the operation
+     */
+    public OperationHandle getUsers(@NonNull final String backendUrl, @Nullable final String customerId, @Nullable final String appId,
+                                    @Nullable final User.State state, @NonNull final Callback<List<User>> callback) {
+        final Callback<List<User>> resultCallback = deliver(callback);
+        return postRead("getUsers", resultCallback, new Runnable() {
 
             @Override
             public void run() {
                 Uri backend = Uri.parse(backendUrl);
                 if (backend != null && backend.getAuthority() != null) {
                     List<User> users = new ArrayList<>();
-                    Status status = mMfaSdk.listUsers(users);
-                    if (status.getStatusCode() == Status.Code.OK) {
-                        Iterator<User> iterator = users.iterator();
-
-                        while (iterator.hasNext()) {
-                            User user = iterator.next();
-                            if (user.getBackend() == null || !user.getBackend().equalsIgnoreCase(backend.getAuthority())) {
-                                iterator.remove();
-                            } else if (customerId != null && user.getCustomerId() != null) {
-
-                                if (!user.getCustomerId().equals(customerId)) {
-                                    iterator.remove();
-                                }
-                            }
-                        }
-                    }
-
-                    callback.onResult(status, users);
+                    Status status = mMfaSdk.listUsers(backend.getAuthority(), customerId, appId, state, users);
+                    resultCallback.onResult(status, users);
                 } else {
-                    callback.onResult(new Status(Status.Code.FLOW_ERROR, "Invalid backend url for listing users"), null);
+                    resultCallback.onResult(new Status(Status.Code.FLOW_ERROR, "Invalid backend url for listing users"), null);
                 }
             }
         });
@@ -1230,12 +1586,13 @@ public class MPinMfaAsync {
      * @param callback
      *   The callback with the result.
      */
-    public void getClientParam(@NonNull final String clientParam, final @NonNull Callback<String> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle getClientParam(@NonNull final String clientParam, final @NonNull Callback<String> callback) {
+        final Callback<String> resultCallback = deliver(callback);
+        return postWrite("getClientParam", resultCallback, new Runnable() {
 
             @Override
             public void run() {
-                callback.onResult(new Status(Status.Code.OK, ""), mMfaSdk.getClientParam(clientParam));
+                resultCallback.onResult(new Status(Status.Code.OK, ""), mMfaSdk.getClientParam(clientParam));
             }
         });
     }
@@ -1247,12 +1604,13 @@ public class MPinMfaAsync {
      * @param callback
      * The callback returning true or false depending on whether a token has been submitted during registration.
      */
-    public void IsRegistrationTokenSet(@NonNull final User user, final @NonNull Callback<Boolean> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle IsRegistrationTokenSet(@NonNull final User user, final @NonNull Callback<Boolean> callback) {
+        final Callback<Boolean> resultCallback = deliver(callback);
+        return postRead("IsRegistrationTokenSet", resultCallback, new Runnable() {
 
             @Override
             public void run() {
-            callback.onResult(new Status(Status.Code.OK, ""), mMfaSdk.isRegistrationTokenSet(user));
+            resultCallback.onResult(new Status(Status.Code.OK, ""), mMfaSdk.isRegistrationTokenSet(user));
             }
         });
     }
@@ -1272,8 +1630,8 @@ public class MPinMfaAsync {
      * @param callback
      *   The callback to receive the SDK.
      */
-    public void doInBackground(@NonNull final Callback<MPinMFA> callback) {
-        mWorkerHandler.post(new Runnable() {
+    public OperationHandle doInBackground(@NonNull final Callback<MPinMFA> callback) {
+        return postWrite("doInBackground", callback, new Runnable() {
 
             @Override
             public void run() {
@@ -1290,19 +1648,74 @@ public class MPinMfaAsync {
     }
 
     /**
-     * Release the SDK. After this method is called all other SDK related methods will fail.
+     * Release the SDK. The waiting and running operations are canceled and the SDK is closed after the running ones
+     * complete. After this method is called all other SDK related methods will fail with {@link Status.Code#CANCELED}.
      */
     public void release() {
-        mWorkerHandler.removeCallbacksAndMessages(null);
-        mWorkerThread.quit();
-        mMfaSdk.close();
+        mScheduler.shutdown("release", new Runnable() {
+
+            @Override
+            public void run() {
+                mMfaSdk.close();
+            }
+        });
+    }
+
+
+    private OperationHandle postRead(String name, @Nullable Callback<?> callback, Runnable operation) {
+        return mScheduler.execute(OperationScheduler.Access.READ, mPriority, name, operation, onCanceled(callback));
+    }
+
+    private OperationHandle postWrite(String name, @Nullable Callback<?> callback, Runnable operation) {
+        return mScheduler.execute(OperationScheduler.Access.WRITE, mPriority, name, operation, onCanceled(callback));
+    }
+
+    private <T> Callback<T> deliver(@Nullable Callback<T> callback) {
+        Executor executor = getCallbackExecutor();
+        if (callback == null || executor == null || executor == DIRECT_EXECUTOR) {
+            return callback;
+        }
+        return new ExecutorCallback<>(callback, executor);
     }
 
+    Executor getCallbackExecutor() {
+        return mCallbackExecutor != null ? mCallbackExecutor : mRoot.mDefaultCallbackExecutor;
+    }
+
+    private static Runnable onCanceled(@Nullable final Callback<?> callback) {
+        if (callback == null) {
+            return null;
+        }
+        return new Runnable() {
+
+            @Override
+            public void run() {
+                callback.onResult(new Status(Status.Code.CANCELED, CANCELED_MESSAGE), null);
+            }
+        };
+    }
 
-    private void initWorkerThread() {
-        mWorkerThread = new HandlerThread("SDK Worker Thread");
-        mWorkerThread.start();
-        mWorkerHandler = new Handler(mWorkerThread.getLooper());
+    private void initScheduler() {
+        mScheduler = new OperationScheduler(DEFAULT_READER_POOL_SIZE, DEFAULT_OPERATION_TIMEOUT_MS,
+          DEFAULT_PRIORITY_AGING_MS);
+        // A result given from the coalescing window is handed to the caller's callback right away, which already goes to
+        // its callback executor when one is set
+        mServiceDetailsFlights = new SingleFlight<>(DIRECT_EXECUTOR, DEFAULT_COALESCING_WINDOW_MS,
+          new SingleFlight.Copier<ServiceDetails>() {
+
+              @Override
+              public ServiceDetails copy(@NonNull ServiceDetails result) {
+                  return new ServiceDetails(result);
+              }
+          });
+        mSessionDetailsFlights = new SingleFlight<>(DIRECT_EXECUTOR, DEFAULT_COALESCING_WINDOW_MS,
+          new SingleFlight.Copier<SessionDetails>() {
+
+              @Override
+              public SessionDetails copy(@NonNull SessionDetails result) {
+                  return new SessionDetails(result);
+              }
+          });
     }
 
     private boolean isValidExpiration(Expiration expiration) {
@@ -0,0 +1,461 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk;
+
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.miracl.mpinsdk.model.OTP;
+import com.miracl.mpinsdk.model.RegCode;
+import com.miracl.mpinsdk.model.ServiceDetails;
+import com.miracl.mpinsdk.model.SessionDetails;
+import com.miracl.mpinsdk.model.Signature;
+import com.miracl.mpinsdk.model.User;
+import com.miracl.mpinsdk.model.VerificationResult;
+
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Future based API of {@link MPinMfaAsync}. Each operation is executed as the corresponding {@link MPinMfaAsync}
+ * operation and returns an {@link OperationFuture}, so that the steps of a flow can be chained instead of nesting their
+ * callbacks:
+ * <pre>
+ * futures.startAuthentication(user, accessCode)
+ *   .then(new OperationFuture.Continuation&lt;Void, String&gt;() {
+ *       public OperationFuture&lt;String&gt; then(Void result) {
+ *           return futures.finishAuthenticationAuthCode(user, factors, accessCode);
+ *       }
+ *   })
+ *   .timeout(60 * 1000)
+ *   .whenComplete(callback);
+ * </pre>
+ * The continuations run on the SDK thread that completed the previous step, and the step they start runs right after
+ * it, without returning to the caller and without waiting behind other operations in the queue.
+ */
+public class MPinMfaFutures {
+
+    private final MPinMfaAsync mMfaAsync;
+    private final MPinMfaAsync mDirectMfaAsync;
+
+    MPinMfaFutures(@NonNull MPinMfaAsync mfaAsync) {
+        mMfaAsync = mfaAsync;
+        // The steps complete their futures on the SDK threads, only the final results go to the callback executor
+        mDirectMfaAsync = mfaAsync.withCallbackExecutor(MPinMfaAsync.DIRECT_EXECUTOR);
+    }
+
+
+    /**
+     * @see MPinMfaAsync#setCid
+     */
+    public OperationFuture<Void> setCid(@NonNull String cid) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.setCid(cid, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#addTrustedDomains
+     */
+    public OperationFuture<Void> addTrustedDomains(@NonNull String[] domains) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.addTrustedDomains(domains, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#addCustomHeaders
+     */
+    public OperationFuture<Void> addCustomHeaders(@NonNull Map<String, String> customHeaders) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.addCustomHeaders(customHeaders, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#isUserExisting
+     */
+    public OperationFuture<Boolean> isUserExisting(@NonNull String id) {
+        OperationFuture<Boolean> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.isUserExisting(id, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#isUserExisting
+     */
+    public OperationFuture<Boolean> isUserExisting(@NonNull String id, @NonNull String customerId) {
+        OperationFuture<Boolean> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.isUserExisting(id, customerId, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#isUserExisting
+     */
+    public OperationFuture<Boolean> isUserExisting(@NonNull String id, @NonNull String customerId,
+                                                   @NonNull String appId) {
+        OperationFuture<Boolean> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.isUserExisting(id, customerId, appId, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#startVerification
+     */
+    public OperationFuture<Void> startVerification(@NonNull User user, @NonNull String clientId,
+                                                   @NonNull String accessCode) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.startVerification(user, clientId, accessCode, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#finishVerification
+     */
+    public OperationFuture<VerificationResult> finishVerification(@NonNull User user,
+                                                                  @NonNull String verificationCode) {
+        OperationFuture<VerificationResult> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.finishVerification(user, verificationCode, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#setBackend
+     */
+    public OperationFuture<Void> setBackend(@NonNull ServiceDetails serviceDetails) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.setBackend(serviceDetails, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#makeNewUser
+     */
+    public OperationFuture<User> makeNewUser(@NonNull String userId, @Nullable String deviceName) {
+        OperationFuture<User> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.makeNewUser(userId, deviceName, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#deleteUser
+     */
+    public OperationFuture<Void> deleteUser(@NonNull User user) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.deleteUser(user, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#getAccessCode
+     */
+    public OperationFuture<String> getAccessCode(@NonNull String authUrl) {
+        OperationFuture<String> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.getAccessCode(authUrl, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#startRegistration
+     */
+    public OperationFuture<Void> startRegistration(@NonNull String accessCode, @NonNull User user) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.startRegistration(accessCode, user, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#startRegistration
+     */
+    public OperationFuture<Void> startRegistration(@NonNull String accessCode, @NonNull User user,
+                                                   @Nullable String pushToken) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.startRegistration(accessCode, user, pushToken, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#startRegistration
+     */
+    public OperationFuture<Void> startRegistration(@NonNull String accessCode, @NonNull User user,
+                                                   @Nullable String pushToken, @Nullable String regCode) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.startRegistration(accessCode, user, pushToken, regCode,
+          future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#startRegistration
+     */
+    public OperationFuture<User> startRegistration(@NonNull String accessCode, @NonNull String userId,
+                                                   @Nullable String deviceName) {
+        OperationFuture<User> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.startRegistration(accessCode, userId, deviceName, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#startRegistration
+     */
+    public OperationFuture<User> startRegistration(@NonNull String accessCode, @NonNull String userId,
+                                                   @Nullable String deviceName, @Nullable String pushToken) {
+        OperationFuture<User> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.startRegistration(accessCode, userId, deviceName, pushToken,
+          future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#startRegistration
+     */
+    public OperationFuture<User> startRegistration(@NonNull String accessCode, @NonNull String userId,
+                                                   @Nullable String deviceName, @Nullable String pushToken,
+                                                   @Nullable String regCode) {
+        OperationFuture<User> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.startRegistration(accessCode, userId, deviceName, pushToken, regCode,
+          future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#restartRegistration
+     */
+    public OperationFuture<Void> restartRegistration(@NonNull User user) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.restartRegistration(user, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#confirmRegistration
+     */
+    public OperationFuture<Void> confirmRegistration(@NonNull User user) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.confirmRegistration(user, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#finishRegistration
+     */
+    public OperationFuture<Void> finishRegistration(@NonNull User user, @NonNull String[] factors) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.finishRegistration(user, factors, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#startNewRegistration
+     */
+    public OperationFuture<User> startNewRegistration(@NonNull String accessCode, @NonNull User user,
+                                                      @Nullable String deviceName) {
+        OperationFuture<User> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.startNewRegistration(accessCode, user, deviceName, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#startRegistrationDvs
+     */
+    public OperationFuture<Void> startRegistrationDvs(@NonNull User user, @NonNull String[] multiFactor) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.startRegistrationDvs(user, multiFactor, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#finishRegistrationDvs
+     */
+    public OperationFuture<Void> finishRegistrationDvs(@NonNull User user, @NonNull String[] multiFactor) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.finishRegistrationDvs(user, multiFactor, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#sign
+     */
+    public OperationFuture<Signature> sign(@NonNull User user, @NonNull byte[] documentHash,
+                                           @NonNull String[] multiFactor, int timestamp) {
+        OperationFuture<Signature> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.sign(user, documentHash, multiFactor, timestamp, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#verifyDocumentHash
+     */
+    public OperationFuture<Boolean> verifyDocumentHash(@NonNull byte[] document, @NonNull byte[] documentHash) {
+        OperationFuture<Boolean> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.verifyDocumentHash(document, documentHash, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#getSessionDetails
+     */
+    public OperationFuture<SessionDetails> getSessionDetails(@NonNull String accessCode) {
+        OperationFuture<SessionDetails> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.getSessionDetails(accessCode, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#getServiceDetails
+     */
+    public OperationFuture<ServiceDetails> getServiceDetails(@NonNull String serviceUrl) {
+        OperationFuture<ServiceDetails> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.getServiceDetails(serviceUrl, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#startAuthentication
+     */
+    public OperationFuture<Void> startAuthentication(@NonNull User user, @NonNull String accessCode) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.startAuthentication(user, accessCode, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#finishAuthentication
+     */
+    public OperationFuture<Void> finishAuthentication(@NonNull User user, @NonNull String[] factors,
+                                                      @NonNull String accessCode) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.finishAuthentication(user, factors, accessCode, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#finishAuthenticationAuthCode
+     */
+    public OperationFuture<String> finishAuthenticationAuthCode(@NonNull User user, @NonNull String[] factors,
+                                                                @NonNull String accessCode) {
+        OperationFuture<String> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.finishAuthenticationAuthCode(user, factors, accessCode,
+          future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#startAuthenticationOtp
+     */
+    public OperationFuture<Void> startAuthenticationOtp(@NonNull User user) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.startAuthenticationOtp(user, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#finishAuthenticationOtp
+     */
+    public OperationFuture<OTP> finishAuthenticationOtp(@NonNull User user, @NonNull String[] factors) {
+        OperationFuture<OTP> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.finishAuthenticationOtp(user, factors, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#startAuthenticationRegCode
+     */
+    public OperationFuture<Void> startAuthenticationRegCode(@NonNull User user) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.startAuthenticationRegCode(user, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#finishAuthenticationRegCode
+     */
+    public OperationFuture<RegCode> finishAuthenticationRegCode(@NonNull User user, @NonNull String[] factors) {
+        OperationFuture<RegCode> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.finishAuthenticationRegCode(user, factors, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#abortSession
+     */
+    public OperationFuture<Void> abortSession(@NonNull String accessCode) {
+        OperationFuture<Void> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.abortSession(accessCode, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#getUsers
+     */
+    public OperationFuture<List<User>> getUsers() {
+        OperationFuture<List<User>> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.getUsers(future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#getUsers
+     */
+    public OperationFuture<List<User>> getUsers(int offset, int limit) {
+        OperationFuture<List<User>> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.getUsers(offset, limit, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#getUsers
+     */
+    public OperationFuture<List<User>> getUsers(@NonNull String backendUrl, @Nullable String customerId) {
+        OperationFuture<List<User>> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.getUsers(backendUrl, customerId, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#getUsers
+     */
+    public OperationFuture<List<User>> getUsers(@NonNull String backendUrl, @Nullable String customerId,
+                                                @Nullable String appId, @Nullable User.State state) {
+        OperationFuture<List<User>> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.getUsers(backendUrl, customerId, appId, state, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#getClientParam
+     */
+    public OperationFuture<String> getClientParam(@NonNull String clientParam) {
+        OperationFuture<String> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.getClientParam(clientParam, future.getCallback()));
+        return future;
+    }
+
+    /**
+     * @see MPinMfaAsync#IsRegistrationTokenSet
+     */
+    public OperationFuture<Boolean> IsRegistrationTokenSet(@NonNull User user) {
+        OperationFuture<Boolean> future = new OperationFuture<>(mMfaAsync.getCallbackExecutor());
+        future.setUpstream(mDirectMfaAsync.IsRegistrationTokenSet(user, future.getCallback()));
+        return future;
+    }
+}
@@ -71,19 +71,19 @@ public class MfaInfoCache {
     }
 
 
-    void putServiceDetails(@NonNull ServiceDetails serviceDetails) {
+    synchronized void putServiceDetails(@NonNull ServiceDetails serviceDetails) {
         mServiceInfo.put(getBackend(serviceDetails.backendUrl), serviceDetails);
 
         updateServiceInfoSharedPrefs();
     }
 
-    void putLastLoggedInUser(@NonNull User user) {
+    synchronized void putLastLoggedInUser(@NonNull User user) {
         String key = getLastLoggedKey(user.getBackend(), user.getCustomerId());
         mLastLoggedUsers.put(key, user.getId());
         updateLastLoggedUsersSharedPrefs();
     }
 
-    void removeFromLastLoggedInUsers(@NonNull User user) {
+    synchronized void removeFromLastLoggedInUsers(@NonNull User user) {
         String key = getLastLoggedKey(user.getBackend(), user.getCustomerId());
         String lastLoggedInUserId = mLastLoggedUsers.get(key);
         if (lastLoggedInUserId != null && lastLoggedInUserId.equals(user.getId())) {
@@ -92,17 +92,17 @@ public class MfaInfoCache {
         }
     }
 
-    void putCustomerInfo(String id, String name, String logoUrl) {
+    synchronized void putCustomerInfo(String id, String name, String logoUrl) {
         mCustomerInfo.put(id, new CustomerInfo(id, name, logoUrl));
         updateCustomerInfoSharedPrefs();
     }
 
-    void putLastOtpUser(@NonNull User user) {
+    synchronized void putLastOtpUser(@NonNull User user) {
         mLastOtpUser = new Pair<>(user.getId(), user.getCustomerId());
         updateLastOtpUser();
     }
 
-    void removeFromLastOtpUser(@NonNull User user) {
+    synchronized void removeFromLastOtpUser(@NonNull User user) {
         if (mLastOtpUser != null && mLastOtpUser.first != null && mLastOtpUser.second != null) {
             if (mLastOtpUser.first.equals(user.getId()) && mLastOtpUser.second.equals(user.getCustomerId())) {
                 mLastOtpUser = null;
@@ -111,18 +111,18 @@ public class MfaInfoCache {
         }
     }
 
-    void putExpiration(@NonNull User user) {
+    synchronized void putExpiration(@NonNull User user) {
         String key = getExpirationKey(user);
         mExpiration.put(key, new RegOttExpiration(user.getRegistationExpiration(), false));
         updateExpiration();
     }
 
-    void removeExpiration(@NonNull User user) {
+    synchronized void removeExpiration(@NonNull User user) {
         mExpiration.remove(getExpirationKey(user));
         updateExpiration();
     }
 
-    void invalidateExpiration(User user, boolean isCancelled) {
+    synchronized void invalidateExpiration(User user, boolean isCancelled) {
         String key = getExpirationKey(user);
         RegOttExpiration expiration = mExpiration.get(key);
         if (expiration != null) {
@@ -141,7 +141,7 @@ public class MfaInfoCache {
      * @return The stored info or <code>null</code> if there is no information for this id
      * @see CustomerInfo
      */
-    public @Nullable
+    public synchronized @Nullable
     CustomerInfo getCustomerInfo(String id) {
         if (mCustomerInfo.containsKey(id)) {
             return mCustomerInfo.get(id);
@@ -158,7 +158,7 @@ public class MfaInfoCache {
      * @return The details for the service or <code>null</code> if there are no stored details for this backend
      * @see ServiceDetails
      */
-    public @Nullable
+    public synchronized @Nullable
     ServiceDetails getServiceDetails(@NonNull String backend) {
         if (mServiceInfo.containsKey(backend)) {
             return mServiceInfo.get(backend);
@@ -178,7 +178,7 @@ public class MfaInfoCache {
      * @return The user's id. Could be <code>null</code> if there hasn't been a successful authentication to that
      * backend/customerId pair.
      */
-    public @Nullable
+    public synchronized @Nullable
     String getLastLoggedInUserId(@NonNull String backend, @NonNull String customerId) {
         String key = getLastLoggedKey(getBackend(backend), customerId);
         if (mLastLoggedUsers.containsKey(key)) {
@@ -194,7 +194,7 @@ public class MfaInfoCache {
      * @return Pair.first is the id of the user,
      * Pair.second is the customer id. Could be <code>null</code> if there hasn't been a successful OTP authentication.
      */
-    public @Nullable
+    public synchronized @Nullable
     Pair<String, String> getLastOtpUserAndCustomerId() {
         return mLastOtpUser;
     }
@@ -207,7 +207,7 @@ public class MfaInfoCache {
      * @return The RegOtt expiration if available
      * @see RegOttExpiration
      */
-    public @Nullable
+    public synchronized @Nullable
     RegOttExpiration getRegOttExpiration(User user) {
         String key = getExpirationKey(user);
         if (mExpiration.containsKey(key)) {
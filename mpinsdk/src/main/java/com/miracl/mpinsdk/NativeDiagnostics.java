@@ -0,0 +1,110 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk;
+
+
+import com.miracl.mpinsdk.util.NativeCleaner;
+
+/**
+ * Snapshot of the native resources held by all SDK instances in the process, as returned by
+ * {@link MPinMFA#getNativeDiagnostics()}.
+ */
+public class NativeDiagnostics {
+
+    // Indexes of the native counters, in the order of the stats::Counter enumeration
+    private static final int SDK_INSTANCES         = 0;
+    private static final int USER_HANDLES          = 1;
+    private static final int GLOBAL_REFS           = 2;
+    private static final int HTTP_BRIDGES          = 3;
+    private static final int POOLED_HTTP_BRIDGES   = 4;
+    private static final int RESPONSE_BUFFER_BYTES = 5;
+
+    private final long[] counters;
+    private final int    pendingNativeFrees;
+
+    NativeDiagnostics(long[] counters) {
+        this.counters = counters;
+        this.pendingNativeFrees = NativeCleaner.getPendingCount();
+    }
+
+    /**
+     * @return The number of live native SDK instances
+     */
+    public long getSdkInstanceCount() {
+        return counters[SDK_INSTANCES];
+    }
+
+    /**
+     * @return The number of native user handles held by {@link com.miracl.mpinsdk.model.User} objects
+     */
+    public long getUserHandleCount() {
+        return counters[USER_HANDLES];
+    }
+
+    /**
+     * @return The number of JNI global references held by the native code
+     */
+    public long getGlobalRefCount() {
+        return counters[GLOBAL_REFS];
+    }
+
+    /**
+     * @return The number of native HTTP bridge objects, including the pooled ones
+     */
+    public long getHttpBridgeCount() {
+        return counters[HTTP_BRIDGES];
+    }
+
+    /**
+     * @return The number of native HTTP bridge objects kept in the pool for reuse
+     */
+    public long getPooledHttpBridgeCount() {
+        return counters[POOLED_HTTP_BRIDGES];
+    }
+
+    /**
+     * @return The number of bytes held in the response buffers of the native HTTP bridges
+     */
+    public long getResponseBufferBytes() {
+        return counters[RESPONSE_BUFFER_BYTES];
+    }
+
+    /**
+     * @return The number of native handles registered for cleanup that are not freed yet
+     */
+    public int getPendingNativeFreeCount() {
+        return pendingNativeFrees;
+    }
+
+    /**
+     * @return Whether there are native resources left that should have been released once no SDK instance is alive
+     */
+    public boolean hasLeaks() {
+        return getSdkInstanceCount() == 0 && (getUserHandleCount() > 0 || getHttpBridgeCount() > getPooledHttpBridgeCount()
+          || getResponseBufferBytes() > 0);
+    }
+
+    @Override
+    public String toString() {
+        return "NativeDiagnostics{sdkInstances=" + getSdkInstanceCount() + ", userHandles=" + getUserHandleCount()
+          + ", globalRefs=" + getGlobalRefCount() + ", httpBridges=" + getHttpBridgeCount() + ", pooledHttpBridges="
+          + getPooledHttpBridgeCount() + ", responseBufferBytes=" + getResponseBufferBytes() + ", pendingNativeFrees="
+          + getPendingNativeFreeCount() + "}";
+    }
+}
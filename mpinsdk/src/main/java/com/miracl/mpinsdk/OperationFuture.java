@@ -0,0 +1,383 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk;
+
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Pair;
+
+import com.miracl.mpinsdk.model.Status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The pending result of one or more SDK operations, as returned by {@link MPinMfaFutures}. Futures are composed with
+ * {@link #then(Continuation)}, {@link #zip(OperationFuture, OperationFuture)} and {@link #timeout(long)}, and the final
+ * result is received with {@link #whenComplete(MPinMfaAsync.Callback)}.
+ * <p>
+ * The continuations run on the SDK thread that completed the previous step, and the operations they call run right after
+ * that step, without waiting in the queue behind other operations. A step that fails completes the dependent futures
+ * with its {@link Status} without running their continuations.
+ *
+ * @param <T>
+ *   The type of the result
+ */
+public final class OperationFuture<T> implements OperationHandle {
+
+    private static final String TIMEOUT_MESSAGE = "The operation did not complete within its timeout";
+
+    private static final ScheduledExecutorService TIMER = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "SDK Future Timer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * The next step of a flow, started with the result of the previous one.
+     *
+     * @param <T>
+     *   The type of the result of the previous step
+     * @param <R>
+     *   The type of the result of the next step
+     */
+    public interface Continuation<T, R> {
+
+        /**
+         * Start the next step. Called on the SDK thread that completed the previous step, so it should only start
+         * operations and return quickly.
+         *
+         * @param result
+         *   The result of the previous step
+         * @return The future of the next step
+         */
+        @NonNull
+        OperationFuture<R> then(@Nullable T result);
+    }
+
+    private final Executor mCallbackExecutor;
+
+    // Guarded by this
+    private boolean         mDone;
+    private Status          mStatus;
+    private T               mResult;
+    private OperationHandle mUpstream;
+    private List<Runnable>  mListeners = new ArrayList<>();
+
+    OperationFuture(@Nullable Executor callbackExecutor) {
+        mCallbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * @return A future completed successfully with a result
+     */
+    public static <T> OperationFuture<T> completed(@Nullable T result) {
+        OperationFuture<T> future = new OperationFuture<>(null);
+        future.complete(new Status(Status.Code.OK, ""), result);
+        return future;
+    }
+
+    /**
+     * @return A future completed with a failure
+     */
+    public static <T> OperationFuture<T> failed(@NonNull Status status) {
+        if (status.getStatusCode() == Status.Code.OK) {
+            throw new IllegalArgumentException();
+        }
+        OperationFuture<T> future = new OperationFuture<>(null);
+        future.complete(status, null);
+        return future;
+    }
+
+    /**
+     * Combine the results of two futures. The combined future fails with the first failure of either of them, in which
+     * case the other one is canceled. Canceling the combined future cancels both.
+     */
+    public static <A, B> OperationFuture<Pair<A, B>> zip(@NonNull final OperationFuture<A> first,
+                                                        @NonNull final OperationFuture<B> second) {
+        final OperationFuture<Pair<A, B>> zipped = new OperationFuture<>(
+          first.mCallbackExecutor != null ? first.mCallbackExecutor : second.mCallbackExecutor);
+        zipped.setUpstream(new OperationHandle() {
+
+            @Override
+            public boolean cancel() {
+                boolean canceled = first.cancel();
+                return second.cancel() || canceled;
+            }
+
+            @Override
+            public boolean isCanceled() {
+                return first.isCanceled() || second.isCanceled();
+            }
+
+            @Override
+            public boolean isDone() {
+                return first.isDone() && second.isDone();
+            }
+        });
+
+        Runnable onCompleted = new Runnable() {
+
+            @Override
+            public void run() {
+                if (first.isFailed()) {
+                    if (zipped.complete(first.mStatus, null)) {
+                        second.cancel();
+                    }
+                } else if (second.isFailed()) {
+                    if (zipped.complete(second.mStatus, null)) {
+                        first.cancel();
+                    }
+                } else if (first.isDone() && second.isDone()) {
+                    zipped.complete(new Status(Status.Code.OK, ""), new Pair<>(first.mResult, second.mResult));
+                }
+            }
+        };
+        first.addListener(onCompleted);
+        second.addListener(onCompleted);
+        return zipped;
+    }
+
+    /**
+     * Continue with a next step when this future completes successfully. Canceling the returned future cancels the step
+     * in progress.
+     *
+     * @param continuation
+     *   Starts the next step with the result of this future
+     * @return The future of the next step
+     */
+    public <R> OperationFuture<R> then(@NonNull final Continuation<? super T, R> continuation) {
+        final OperationFuture<R> next = new OperationFuture<>(mCallbackExecutor);
+        next.setUpstream(this);
+        addListener(new Runnable() {
+
+            @Override
+            public void run() {
+                if (mStatus.getStatusCode() != Status.Code.OK) {
+                    next.complete(mStatus, null);
+                    return;
+                }
+                OperationScheduler.runChained(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        OperationFuture<R> step;
+                        try {
+                            step = continuation.then(mResult);
+                        } catch (RuntimeException e) {
+                            next.complete(new Status(Status.Code.FLOW_ERROR, e.getMessage()), null);
+                            return;
+                        }
+                        next.follow(step);
+                    }
+                });
+            }
+        });
+        return next;
+    }
+
+    /**
+     * Limit the time for which the result of this future is awaited. If it doesn't complete in time, this future is
+     * canceled and the returned one completes with {@link Status.Code#DEADLINE_EXCEEDED}.
+     *
+     * @param timeoutMs
+     *   The timeout in milliseconds
+     */
+    public OperationFuture<T> timeout(long timeoutMs) {
+        if (timeoutMs <= 0) {
+            throw new IllegalArgumentException();
+        }
+        final OperationFuture<T> timed = new OperationFuture<>(mCallbackExecutor);
+        final ScheduledFuture<?> timer = TIMER.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                if (timed.complete(new Status(Status.Code.DEADLINE_EXCEEDED, TIMEOUT_MESSAGE), null)) {
+                    cancel();
+                }
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        timed.follow(this);
+        timed.addListener(new Runnable() {
+
+            @Override
+            public void run() {
+                timer.cancel(false);
+            }
+        });
+        return timed;
+    }
+
+    /**
+     * Receive the result of this future. The callback is called on the callback executor of the {@link MPinMfaAsync}
+     * instance the future was created with, if one is set, and otherwise on the thread that completes the future.
+     *
+     * @return This future
+     */
+    public OperationFuture<T> whenComplete(@NonNull final MPinMfaAsync.Callback<T> callback) {
+        addListener(new Runnable() {
+
+            @Override
+            public void run() {
+                if (mCallbackExecutor == null) {
+                    callback.onResult(mStatus, mResult);
+                    return;
+                }
+                mCallbackExecutor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        callback.onResult(mStatus, mResult);
+                    }
+                });
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Cancel this future and the operation it awaits. The future completes with {@link Status.Code#CANCELED}, and so do
+     * the futures that depend on it.
+     *
+     * @return <code>true</code> if the future was canceled, <code>false</code> if it had already completed
+     */
+    @Override
+    public boolean cancel() {
+        OperationHandle upstream;
+        synchronized (this) {
+            upstream = mUpstream;
+        }
+        if (!complete(new Status(Status.Code.CANCELED, MPinMfaAsync.CANCELED_MESSAGE), null)) {
+            return false;
+        }
+        if (upstream != null) {
+            upstream.cancel();
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCanceled() {
+        return mDone && mStatus.getStatusCode() == Status.Code.CANCELED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return mDone;
+    }
+
+    /**
+     * @return The status of the completed future, or <code>null</code> if it hasn't completed
+     */
+    @Nullable
+    public synchronized Status getStatus() {
+        return mStatus;
+    }
+
+    /**
+     * @return The result of the completed future, or <code>null</code> if it hasn't completed or has failed
+     */
+    @Nullable
+    public synchronized T getResult() {
+        return mResult;
+    }
+
+    /**
+     * @return A callback that completes this future with the result of an operation
+     */
+    MPinMfaAsync.Callback<T> getCallback() {
+        return new MPinMfaAsync.Callback<T>() {
+
+            @Override
+            protected void onResult(@NonNull Status status, @Nullable T result) {
+                complete(status, result);
+            }
+        };
+    }
+
+    /**
+     * Set the handle through which this future cancels the operation it awaits. If this future has already completed,
+     * the operation is not needed anymore and is canceled.
+     */
+    void setUpstream(OperationHandle upstream) {
+        synchronized (this) {
+            if (!mDone) {
+                mUpstream = upstream;
+                return;
+            }
+        }
+        upstream.cancel();
+    }
+
+    private void follow(final OperationFuture<T> step) {
+        setUpstream(step);
+        step.addListener(new Runnable() {
+
+            @Override
+            public void run() {
+                complete(step.mStatus, step.mResult);
+            }
+        });
+    }
+
+    private synchronized boolean isFailed() {
+        return mDone && mStatus.getStatusCode() != Status.Code.OK;
+    }
+
+    private boolean complete(Status status, T result) {
+        List<Runnable> listeners;
+        synchronized (this) {
+            if (mDone) {
+                return false;
+            }
+            mDone = true;
+            mStatus = status;
+            mResult = result;
+            mUpstream = null;
+            listeners = mListeners;
+            mListeners = null;
+        }
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+        return true;
+    }
+
+    private void addListener(Runnable listener) {
+        synchronized (this) {
+            if (!mDone) {
+                mListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+}
@@ -0,0 +1,51 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk;
+
+
+import com.miracl.mpinsdk.model.Status;
+
+
+/**
+ * Handle of an operation called on {@link MPinMfaAsync}, which can be used to cancel the operation, for example when the
+ * user leaves the screen that started it.
+ */
+public interface OperationHandle {
+
+    /**
+     * Cancel the operation. An operation that hasn't started is removed from its queue and its callback is called with
+     * {@link Status.Code#CANCELED} before this method returns. A running operation is aborted by closing the connection of
+     * its request in progress and its callback is called with {@link Status.Code#CANCELED}, unless the operation
+     * completes before the cancellation takes effect, in which case its result is delivered.
+     *
+     * @return <code>true</code> if the operation was canceled, <code>false</code> if it had already completed or was
+     * canceled before
+     */
+    boolean cancel();
+
+    /**
+     * @return Whether the operation was canceled
+     */
+    boolean isCanceled();
+
+    /**
+     * @return Whether the operation has completed or was removed from its queue
+     */
+    boolean isDone();
+}
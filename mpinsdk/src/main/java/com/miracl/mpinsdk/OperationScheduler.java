@@ -0,0 +1,473 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk;
+
+
+import android.os.SystemClock;
+
+import com.miracl.mpinsdk.net.OperationContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ * Executes the SDK operations according to how they access the SDK state. Operations that only call <code>const</code>
+ * methods of the core run concurrently on a pool of reader threads, while all other operations are serialized on a
+ * single writer thread. The core has no locking of its own, so a writer excludes the readers for its whole duration.
+ * A reader waits until the writers scheduled before it complete, so that it sees their changes as if all operations
+ * were executed in order, but it's not delayed by the writers scheduled after it.
+ * <p>
+ * The waiting operations are ordered by their {@link MPinMfaAsync.Priority priority} with aging: an operation is queued
+ * as if it was scheduled one aging interval later for each priority level below {@link MPinMfaAsync.Priority#INTERACTIVE}.
+ * Operations of the same priority are executed in the order they are scheduled, and an operation of a lower priority
+ * waits at most as long as the operations of higher priorities that are scheduled within its aging intervals.
+ * <p>
+ * Each scheduled operation can be canceled through its {@link OperationHandle}. A canceled operation that hasn't started
+ * is removed from its queue, while a running one has its {@link OperationContext} canceled.
+ * <p>
+ * Operations scheduled by a continuation run with {@link #runChained} while an operation is executing are its follow-ups.
+ * A follow-up that uses the same thread pool runs on the same thread right after the operation, without being queued,
+ * and the other follow-ups are queued with the order of the operation, so that the steps of a flow run back to back.
+ */
+final class OperationScheduler {
+
+    enum Access {
+        READ,
+        WRITE
+    }
+
+    private static final long IDLE_THREAD_KEEP_ALIVE_MS = 30 * 1000;
+
+    private static final ThreadLocal<Task>    CURRENT_TASK = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> CHAINING     = new ThreadLocal<>();
+
+    private final ReentrantReadWriteLock mStateLock = new ReentrantReadWriteLock();
+    private final AtomicLong             mSequence  = new AtomicLong();
+    private final Lane[]                 mLanes;
+    private final Set<Task>              mRunning   = Collections.newSetFromMap(new ConcurrentHashMap<Task, Boolean>());
+    private final ThreadPoolExecutor     mWriteExecutor;
+    private final ThreadPoolExecutor     mReadExecutor;
+
+    // The sequences of the writers that haven't completed and the readers that wait for them, guarded by mOrderLock
+    private final Object        mOrderLock         = new Object();
+    private final TreeSet<Long> mPendingWrites     = new TreeSet<>();
+    private final List<Task>    mDeferredReads     = new ArrayList<>();
+    private long                mLastWriteSequence = -1;
+
+    private volatile long mOperationTimeoutMs;
+    private volatile long mAgingIntervalMs;
+
+    OperationScheduler(int readerPoolSize, long operationTimeoutMs, long agingIntervalMs) {
+        MPinMfaAsync.Priority[] priorities = MPinMfaAsync.Priority.values();
+        mLanes = new Lane[priorities.length];
+        for (MPinMfaAsync.Priority priority : priorities) {
+            mLanes[priority.ordinal()] = new Lane(priority);
+        }
+        mWriteExecutor = createExecutor("SDK Writer Thread", 1);
+        mReadExecutor = createExecutor("SDK Reader Thread", readerPoolSize);
+        mOperationTimeoutMs = operationTimeoutMs;
+        mAgingIntervalMs = agingIntervalMs;
+    }
+
+    void setReaderPoolSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException();
+        }
+        // The maximum size is never below the core size, so it's changed first when growing the pool
+        if (size > mReadExecutor.getMaximumPoolSize()) {
+            mReadExecutor.setMaximumPoolSize(size);
+            mReadExecutor.setCorePoolSize(size);
+        } else {
+            mReadExecutor.setCorePoolSize(size);
+            mReadExecutor.setMaximumPoolSize(size);
+        }
+    }
+
+    int getReaderPoolSize() {
+        return mReadExecutor.getMaximumPoolSize();
+    }
+
+    /**
+     * @param timeoutMs
+     *   The time budget of the operations scheduled from now on, as given to {@link OperationContext#begin}
+     */
+    void setOperationTimeout(long timeoutMs) {
+        if (timeoutMs < 0) {
+            throw new IllegalArgumentException();
+        }
+        mOperationTimeoutMs = timeoutMs;
+    }
+
+    /**
+     * @param intervalMs
+     *   The time a waiting operation has to age to be ordered as an operation of the next higher priority, or
+     *   <code>0</code> to order the operations only by the time they were scheduled
+     */
+    void setAgingInterval(long intervalMs) {
+        if (intervalMs < 0) {
+            throw new IllegalArgumentException();
+        }
+        mAgingIntervalMs = intervalMs;
+    }
+
+    /**
+     * Schedule an operation. Operations scheduled after {@link #shutdown} are canceled.
+     *
+     * @param access
+     *   How the operation accesses the SDK state
+     * @param priority
+     *   The priority of the operation
+     * @param name
+     *   The name of the operation
+     * @param onCanceled
+     *   Called on the canceling thread if the operation is canceled before it starts, can be <code>null</code>
+     */
+    OperationHandle execute(Access access, MPinMfaAsync.Priority priority, String name, Runnable operation,
+                            Runnable onCanceled) {
+        ThreadPoolExecutor executor = access == Access.WRITE ? mWriteExecutor : mReadExecutor;
+        Task parent = CHAINING.get() == Boolean.TRUE ? CURRENT_TASK.get() : null;
+        if (parent != null && parent.getScheduler() != this) {
+            parent = null;
+        }
+        Task task;
+        synchronized (mOrderLock) {
+            task = new Task(executor, access, mLanes[priority.ordinal()], name, operation, onCanceled, parent);
+            if (access == Access.WRITE) {
+                mPendingWrites.add(task.sequence);
+                mLastWriteSequence = task.sequence;
+            }
+        }
+        task.lane.onQueued();
+        if (parent != null && parent.executor == executor && !executor.isShutdown()) {
+            parent.followUps.add(task);
+        } else {
+            executor.execute(task);
+        }
+        return task;
+    }
+
+    /**
+     * Run a continuation of the operation executing on the current thread, whose scheduled operations become follow-ups
+     * of the executing one. When no operation is executing on the current thread the continuation just runs.
+     */
+    static void runChained(Runnable continuation) {
+        Boolean chaining = CHAINING.get();
+        CHAINING.set(Boolean.TRUE);
+        try {
+            continuation.run();
+        } finally {
+            CHAINING.set(chaining);
+        }
+    }
+
+    QueueStats getQueueStats(MPinMfaAsync.Priority priority) {
+        return mLanes[priority.ordinal()].getStats();
+    }
+
+    /**
+     * Cancel all scheduled and running operations and stop accepting new ones. The final operation is executed as a
+     * writer after the running operations complete.
+     */
+    void shutdown(String name, Runnable finalOperation) {
+        // The writers go first, as canceling them releases the readers that wait for them
+        cancelQueued(mWriteExecutor);
+        List<Task> deferredReads;
+        synchronized (mOrderLock) {
+            deferredReads = new ArrayList<>(mDeferredReads);
+            mDeferredReads.clear();
+        }
+        for (Task task : deferredReads) {
+            task.cancel();
+        }
+        cancelQueued(mReadExecutor);
+        for (Task task : mRunning) {
+            task.cancel();
+        }
+        execute(Access.WRITE, MPinMfaAsync.Priority.INTERACTIVE, name, finalOperation, null);
+        mReadExecutor.shutdown();
+        mWriteExecutor.shutdown();
+    }
+
+    private static void cancelQueued(ThreadPoolExecutor executor) {
+        List<Runnable> queued = new ArrayList<>();
+        executor.getQueue().drainTo(queued);
+        for (Runnable task : queued) {
+            ((Task) task).cancel();
+        }
+    }
+
+    /**
+     * @return Whether the reader has to wait for writers scheduled before it, in which case it's executed again when they
+     * complete
+     */
+    private boolean deferRead(Task read) {
+        synchronized (mOrderLock) {
+            if (mPendingWrites.isEmpty() || mPendingWrites.first() > read.precedingWrite) {
+                return false;
+            }
+            mDeferredReads.add(read);
+            return true;
+        }
+    }
+
+    private void onWriteCompleted(Task write) {
+        List<Task> readyReads = new ArrayList<>();
+        synchronized (mOrderLock) {
+            mPendingWrites.remove(write.sequence);
+            Long firstPendingWrite = mPendingWrites.isEmpty() ? null : mPendingWrites.first();
+            Iterator<Task> iterator = mDeferredReads.iterator();
+            while (iterator.hasNext()) {
+                Task read = iterator.next();
+                if (firstPendingWrite == null || firstPendingWrite > read.precedingWrite) {
+                    readyReads.add(read);
+                    iterator.remove();
+                }
+            }
+        }
+        for (Task read : readyReads) {
+            if (!read.isDone()) {
+                mReadExecutor.execute(read);
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor createExecutor(final String threadName, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException();
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, IDLE_THREAD_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS,
+          new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, threadName + " #" + mCount.incrementAndGet());
+            }
+        }, new RejectedExecutionHandler() {
+
+            @Override
+            public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+                ((Task) task).cancel();
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private final class Task implements Runnable, Comparable<Task>, OperationHandle {
+
+        private static final int QUEUED    = 0;
+        private static final int RUNNING   = 1;
+        private static final int CANCELING = 2;
+        private static final int DONE      = 3;
+        private static final int CANCELED  = 4;
+
+        final ThreadPoolExecutor executor;
+        final Access             access;
+        final Lane               lane;
+        final String             name;
+        final Runnable           operation;
+        final Runnable           onCanceled;
+        final long               timeoutMs;
+        final long               scheduledAt;
+        final long               rank;
+        final long               sequence;
+        final long               precedingWrite;
+
+        private final AtomicInteger state     = new AtomicInteger(QUEUED);
+        private final List<Task>    followUps = new ArrayList<>();
+
+        private volatile boolean          canceled;
+        private volatile OperationContext context;
+
+        Task(ThreadPoolExecutor executor, Access access, Lane lane, String name, Runnable operation, Runnable onCanceled,
+             Task parent) {
+            this.executor = executor;
+            this.access = access;
+            this.lane = lane;
+            this.name = name;
+            this.operation = operation;
+            this.onCanceled = onCanceled;
+            this.timeoutMs = mOperationTimeoutMs;
+            this.scheduledAt = SystemClock.elapsedRealtime();
+            // A follow-up keeps the order of the operation it continues
+            this.rank = parent != null ? parent.rank : scheduledAt + lane.priority.ordinal() * mAgingIntervalMs;
+            this.sequence = mSequence.getAndIncrement();
+            // Created with mOrderLock held, so no writer is scheduled between the two
+            this.precedingWrite = access == Access.READ ? mLastWriteSequence : -1;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (rank != other.rank) {
+                return rank < other.rank ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+
+        OperationScheduler getScheduler() {
+            return OperationScheduler.this;
+        }
+
+        @Override
+        public void run() {
+            if (access == Access.READ && state.get() == QUEUED && deferRead(this)) {
+                return;
+            }
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                // Canceled while it was being taken from the queue
+                return;
+            }
+            lane.onStarted(SystemClock.elapsedRealtime() - scheduledAt);
+            mRunning.add(this);
+            Task previousTask = CURRENT_TASK.get();
+            CURRENT_TASK.set(this);
+            try {
+                Lock lock = access == Access.WRITE ? mStateLock.writeLock() : mStateLock.readLock();
+                lock.lock();
+                try {
+                    OperationContext operationContext = OperationContext.begin(name, timeoutMs);
+                    context = operationContext;
+                    if (state.get() == CANCELING) {
+                        operationContext.cancel();
+                    }
+                    try {
+                        operation.run();
+                    } finally {
+                        operationContext.end();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            } finally {
+                CURRENT_TASK.set(previousTask);
+                state.set(DONE);
+                context = null;
+                mRunning.remove(this);
+                lane.onFinished();
+                if (access == Access.WRITE) {
+                    onWriteCompleted(this);
+                }
+            }
+
+            // The follow-ups are only added by this task's own thread, so the list is safe to read without a lock
+            for (Task followUp : followUps) {
+                if (executor.isShutdown()) {
+                    followUp.cancel();
+                } else {
+                    followUp.run();
+                }
+            }
+            followUps.clear();
+        }
+
+        @Override
+        public boolean cancel() {
+            if (state.compareAndSet(QUEUED, CANCELED)) {
+                canceled = true;
+                executor.remove(this);
+                lane.onDiscarded();
+                if (access == Access.WRITE) {
+                    onWriteCompleted(this);
+                }
+                if (onCanceled != null) {
+                    onCanceled.run();
+                }
+                return true;
+            }
+            if (state.compareAndSet(RUNNING, CANCELING)) {
+                canceled = true;
+                OperationContext operationContext = context;
+                if (operationContext != null) {
+                    operationContext.cancel();
+                }
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public boolean isDone() {
+            int current = state.get();
+            return current == DONE || current == CANCELED;
+        }
+    }
+
+    private static final class Lane {
+
+        final MPinMfaAsync.Priority priority;
+
+        private int  queued;
+        private int  running;
+        private long completed;
+        private long totalWaitMs;
+        private long maxWaitMs;
+
+        Lane(MPinMfaAsync.Priority priority) {
+            this.priority = priority;
+        }
+
+        synchronized void onQueued() {
+            queued++;
+        }
+
+        synchronized void onDiscarded() {
+            queued--;
+        }
+
+        synchronized void onStarted(long waitMs) {
+            queued--;
+            running++;
+            totalWaitMs += waitMs;
+            maxWaitMs = Math.max(maxWaitMs, waitMs);
+        }
+
+        synchronized void onFinished() {
+            running--;
+            completed++;
+        }
+
+        synchronized QueueStats getStats() {
+            long started = completed + running;
+            return new QueueStats(priority, queued, running, completed, started > 0 ? totalWaitMs / started : 0,
+              maxWaitMs);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk;
+
+
+/**
+ * Snapshot of the queue of the {@link MPinMfaAsync} operations with a priority, as returned by
+ * {@link MPinMfaAsync#getQueueStats(MPinMfaAsync.Priority)}.
+ */
+public class QueueStats {
+
+    private final MPinMfaAsync.Priority priority;
+    private final int                   queuedCount;
+    private final int                   runningCount;
+    private final long                  completedCount;
+    private final long                  averageWaitMs;
+    private final long                  maxWaitMs;
+
+    QueueStats(MPinMfaAsync.Priority priority, int queuedCount, int runningCount, long completedCount, long averageWaitMs,
+               long maxWaitMs) {
+        this.priority = priority;
+        this.queuedCount = queuedCount;
+        this.runningCount = runningCount;
+        this.completedCount = completedCount;
+        this.averageWaitMs = averageWaitMs;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    public MPinMfaAsync.Priority getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return The number of operations waiting to be executed
+     */
+    public int getQueuedCount() {
+        return queuedCount;
+    }
+
+    /**
+     * @return The number of operations being executed
+     */
+    public int getRunningCount() {
+        return runningCount;
+    }
+
+    /**
+     * @return The number of operations that have completed
+     */
+    public long getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * @return The average time in milliseconds the started operations waited in the queue
+     */
+    public long getAverageWaitMs() {
+        return averageWaitMs;
+    }
+
+    /**
+     * @return The longest time in milliseconds a started operation waited in the queue
+     */
+    public long getMaxWaitMs() {
+        return maxWaitMs;
+    }
+
+    @Override
+    public String toString() {
+        return "QueueStats{priority=" + priority + ", queued=" + queuedCount + ", running=" + runningCount + ", completed="
+          + completedCount + ", averageWaitMs=" + averageWaitMs + ", maxWaitMs=" + maxWaitMs + "}";
+    }
+}
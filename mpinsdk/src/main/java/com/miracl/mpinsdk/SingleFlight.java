@@ -0,0 +1,256 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk;
+
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.miracl.mpinsdk.model.Status;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Coalesces concurrent executions of an operation with the same key. While an execution is in flight, later callers are
+ * attached to it, and a successful result is also given to the callers that come within a window after its completion.
+ * Each attached caller receives its own copy of the result, so that a caller can't change the result the others see.
+ * <p>
+ * Each caller can be canceled on its own, which detaches it from the execution. The execution itself is canceled when
+ * all of its callers are canceled.
+ *
+ * @param <T>
+ *   The type of the result
+ */
+final class SingleFlight<T> {
+
+    /**
+     * Copies the results of the executions for the callers.
+     */
+    interface Copier<T> {
+
+        T copy(@NonNull T result);
+    }
+
+    private final Executor               mExecutor;
+    private final Copier<T>              mCopier;
+    private final Map<String, Flight<T>> mFlights = new HashMap<>();
+
+    private volatile long mResultWindowMs;
+
+    /**
+     * @param executor
+     *   The executor on which the results of the completed executions are delivered to the callers that join within the
+     *   window
+     * @param copier
+     *   Copies the result for each caller
+     */
+    SingleFlight(Executor executor, long resultWindowMs, Copier<T> copier) {
+        mExecutor = executor;
+        mCopier = copier;
+        mResultWindowMs = resultWindowMs;
+    }
+
+    void setResultWindow(long resultWindowMs) {
+        mResultWindowMs = resultWindowMs;
+    }
+
+    /**
+     * Attach a caller to the execution for a key.
+     *
+     * @return The attached caller. If it {@link Caller#isLeader() leads} the execution, the caller should start it, set
+     * its handle with {@link Caller#setExecution} and deliver its result to {@link Caller#getCompletion()}.
+     */
+    Caller join(String key, MPinMfaAsync.Callback<T> callback) {
+        final Flight<T> completed;
+        final Caller caller;
+        synchronized (this) {
+            removeExpired();
+            Flight<T> flight = mFlights.get(key);
+            if (flight == null) {
+                flight = new Flight<>(key);
+                mFlights.put(key, flight);
+                caller = new Caller(flight, callback, true);
+                flight.callers.add(caller);
+                return caller;
+            }
+            caller = new Caller(flight, callback, false);
+            if (flight.completedAt == 0) {
+                flight.callers.add(caller);
+                return caller;
+            }
+            completed = flight;
+        }
+
+        mExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                caller.deliver(completed.status, completed.result);
+            }
+        });
+        return caller;
+    }
+
+    private void complete(Flight<T> flight, Status status, T result) {
+        List<Caller> callers;
+        synchronized (this) {
+            flight.status = status;
+            flight.result = result;
+            flight.completedAt = SystemClock.elapsedRealtime();
+            if ((status.getStatusCode() != Status.Code.OK || mResultWindowMs <= 0) && mFlights.get(flight.key) == flight) {
+                mFlights.remove(flight.key);
+            }
+            removeExpired();
+            callers = new ArrayList<>(flight.callers);
+        }
+
+        for (Caller caller : callers) {
+            caller.deliver(status, result);
+        }
+    }
+
+    private void leave(Caller caller) {
+        Flight<T> flight = caller.flight;
+        OperationHandle abandoned = null;
+        synchronized (this) {
+            flight.callers.remove(caller);
+            if (flight.completedAt == 0 && flight.callers.isEmpty()) {
+                flight.abandoned = true;
+                abandoned = flight.execution;
+                if (mFlights.get(flight.key) == flight) {
+                    mFlights.remove(flight.key);
+                }
+            }
+        }
+        if (abandoned != null) {
+            abandoned.cancel();
+        }
+    }
+
+    private void removeExpired() {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<Flight<T>> iterator = mFlights.values().iterator();
+        while (iterator.hasNext()) {
+            Flight<T> flight = iterator.next();
+            if (flight.completedAt != 0 && now - flight.completedAt >= mResultWindowMs) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * A caller attached to an execution, which receives the result of the execution unless it's canceled.
+     */
+    final class Caller implements OperationHandle {
+
+        private static final int PENDING  = 0;
+        private static final int DONE     = 1;
+        private static final int CANCELED = 2;
+
+        private final Flight<T>                flight;
+        private final MPinMfaAsync.Callback<T> callback;
+        private final boolean                  leader;
+        private final AtomicInteger            state = new AtomicInteger(PENDING);
+
+        Caller(Flight<T> flight, MPinMfaAsync.Callback<T> callback, boolean leader) {
+            this.flight = flight;
+            this.callback = callback;
+            this.leader = leader;
+        }
+
+        boolean isLeader() {
+            return leader;
+        }
+
+        /**
+         * Set the handle of the execution started by the leader, which is canceled when all callers are canceled.
+         */
+        void setExecution(OperationHandle execution) {
+            synchronized (SingleFlight.this) {
+                if (!flight.abandoned) {
+                    flight.execution = execution;
+                    return;
+                }
+            }
+            execution.cancel();
+        }
+
+        /**
+         * @return The callback to which the leader delivers the result of the execution
+         */
+        MPinMfaAsync.Callback<T> getCompletion() {
+            return new MPinMfaAsync.Callback<T>() {
+
+                @Override
+                protected void onResult(@NonNull Status status, @Nullable T result) {
+                    complete(flight, status, result);
+                }
+            };
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELED)) {
+                return false;
+            }
+            leave(this);
+            callback.onResult(new Status(Status.Code.CANCELED, MPinMfaAsync.CANCELED_MESSAGE), null);
+            return true;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return state.get() == CANCELED;
+        }
+
+        @Override
+        public boolean isDone() {
+            return state.get() != PENDING;
+        }
+
+        void deliver(Status status, T result) {
+            if (state.compareAndSet(PENDING, DONE)) {
+                callback.onResult(status, result != null ? mCopier.copy(result) : null);
+            }
+        }
+    }
+
+    private static class Flight<T> {
+
+        final String                       key;
+        final List<SingleFlight<T>.Caller> callers = new ArrayList<>();
+        Status          status;
+        T               result;
+        long            completedAt;
+        boolean         abandoned;
+        OperationHandle execution;
+
+        Flight(String key) {
+            this.key = key;
+        }
+    }
+}
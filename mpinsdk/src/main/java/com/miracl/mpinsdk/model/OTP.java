@@ -32,4 +32,15 @@ public class OTP implements Serializable {
     public long nowTime;
 
     public Status status;
+
+    /**
+     * Called by the native code to fill in all the fields with a single JNI call
+     */
+    private void set(String otp, long expireTime, int ttlSeconds, long nowTime, Status status) {
+        this.otp = otp;
+        this.expireTime = expireTime;
+        this.ttlSeconds = ttlSeconds;
+        this.nowTime = nowTime;
+        this.status = status;
+    }
 }
@@ -25,4 +25,23 @@ public class ServiceDetails {
     public String backendUrl;
 
     public String logoUrl;
+
+    public ServiceDetails() {
+    }
+
+    /**
+     * Create a copy of service details
+     */
+    public ServiceDetails(ServiceDetails other) {
+        set(other.name, other.backendUrl, other.logoUrl);
+    }
+
+    /**
+     * Called by the native code to fill in all the fields with a single JNI call
+     */
+    private void set(String name, String backendUrl, String logoUrl) {
+        this.name = name;
+        this.backendUrl = backendUrl;
+        this.logoUrl = logoUrl;
+    }
 }
@@ -37,4 +37,31 @@ public class SessionDetails {
     public String redirectUri;
 
     public boolean registerOnly;
+
+    public SessionDetails() {
+    }
+
+    /**
+     * Create a copy of session details
+     */
+    public SessionDetails(SessionDetails other) {
+        set(other.prerollId, other.appName, other.appIconUrl, other.customerId, other.customerName, other.customerIconUrl,
+          other.clientId, other.redirectUri, other.registerOnly);
+    }
+
+    /**
+     * Called by the native code to fill in all the fields with a single JNI call
+     */
+    private void set(String prerollId, String appName, String appIconUrl, String customerId, String customerName,
+                     String customerIconUrl, String clientId, String redirectUri, boolean registerOnly) {
+        this.prerollId = prerollId;
+        this.appName = appName;
+        this.appIconUrl = appIconUrl;
+        this.customerId = customerId;
+        this.customerName = customerName;
+        this.customerIconUrl = customerIconUrl;
+        this.clientId = clientId;
+        this.redirectUri = redirectUri;
+        this.registerOnly = registerOnly;
+    }
 }
@@ -8,4 +8,16 @@ public class Signature {
     public byte[] v;
     public byte[] publicKey;
     public byte[] dtas;
+
+    /**
+     * Called by the native code to fill in all the fields with a single JNI call
+     */
+    private void set(byte[] hash, byte[] mpinId, byte[] u, byte[] v, byte[] publicKey, byte[] dtas) {
+        this.hash = hash;
+        this.mpinId = mpinId;
+        this.u = u;
+        this.v = v;
+        this.publicKey = publicKey;
+        this.dtas = dtas;
+    }
 }
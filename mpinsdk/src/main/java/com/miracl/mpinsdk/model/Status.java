@@ -76,6 +76,8 @@ public class Status implements Serializable {
         UNTRUSTED_DOMAIN_ERROR, // Local error - a request to a domain, that is not in the trusted list was attempted
         REGISTRATION_EXPIRED, // Remote error - regOTT expired
         OPERATION_NOT_ALLOWED, // Remote error - RegCode generation not allowed for users, registered with RegCode
-        VERIFICATION_FAILED //Remote error - Verification failed because of server error or invalid user id
+        VERIFICATION_FAILED, //Remote error - Verification failed because of server error or invalid user id
+        DEADLINE_EXCEEDED, // Local error - the operation did not complete within its time budget
+        CANCELED // Local error - the operation was canceled
     }
 }
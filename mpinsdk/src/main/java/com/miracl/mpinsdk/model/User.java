@@ -18,6 +18,8 @@
  ***************************************************************/
 package com.miracl.mpinsdk.model;
 
+import com.miracl.mpinsdk.util.NativeCleaner;
+
 import java.io.Closeable;
 
 
@@ -27,11 +29,48 @@ public class User implements Closeable {
         INVALID, STARTED_VERIFICATION, STARTED_REGISTRATION, ACTIVATED, REGISTERED, BLOCKED
     }
 
-    private long mPtr;
+    private static final NativeCleaner.Deallocator DEALLOCATOR = new NativeCleaner.Deallocator() {
+
+        @Override
+        public void free(long ptr) {
+            nDestruct(ptr);
+        }
+    };
+
+    private long                    mPtr;
+    private NativeCleaner.Cleanable mCleanable;
+
+    private volatile UserSnapshot mSnapshot;
 
 
+    /**
+     * Get the descriptive fields of the user. They are fetched from the native SDK with a single call and cached until
+     * an SDK operation on this user object calls {@link #invalidateSnapshot()}. Other objects for the same user, for example
+     * the ones returned by a later listing, keep their own cache.
+     *
+     * @return The cached snapshot of the user
+     */
+    public UserSnapshot getSnapshot() {
+        UserSnapshot snapshot = mSnapshot;
+        if (snapshot == null) {
+            synchronized (this) {
+                snapshot = nGetSnapshot(mPtr);
+            }
+            mSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Drop the cached snapshot, so the next getter call fetches the current values from the native SDK. The SDK calls it
+     * after every operation that may change the user.
+     */
+    public void invalidateSnapshot() {
+        mSnapshot = null;
+    }
+
     public String getId() {
-        return nGetId(mPtr);
+        return getSnapshot().getId();
     }
 
     public Expiration getRegistationExpiration() {
@@ -41,51 +80,27 @@ public class User implements Closeable {
     }
 
     public State getState() {
-        switch (nGetState(mPtr)) {
-            case 1:
-                return State.STARTED_VERIFICATION;
-            case 2:
-                return State.STARTED_REGISTRATION;
-            case 3:
-                return State.ACTIVATED;
-            case 4:
-                return State.REGISTERED;
-            case 5:
-                return State.BLOCKED;
-            default:
-                return State.INVALID;
-        }
+        return getSnapshot().getState();
     }
 
     public VerificationType getVerificationType() {
-        switch (nGetVerificationType(mPtr)) {
-            case "em":
-                return VerificationType.EMAIL;
-            case "rc":
-                return VerificationType.REG_CODE;
-            case "dvs":
-                return VerificationType.DVS;
-            case "pv":
-                return VerificationType.PLUGGABLE;
-            default:
-                return VerificationType.NONE;
-        }
+        return getSnapshot().getVerificationType();
     }
 
     public String getBackend() {
-        return nGetBackend(mPtr);
+        return getSnapshot().getBackend();
     }
 
     public String getCustomerId() {
-        return nGetCustomerId(mPtr);
+        return getSnapshot().getCustomerId();
     }
 
     public String getAppId() {
-        return nGetAppId(mPtr);
+        return getSnapshot().getAppId();
     }
 
     public boolean canSign() {
-        return nCanSign(mPtr);
+        return getSnapshot().canSign();
     }
 
     /**
@@ -94,27 +109,21 @@ public class User implements Closeable {
      * The required length for the user PIN
      */
     public int getPinLength() {
-        return nGetPinLength(mPtr);
+        return getSnapshot().getPinLength();
     }
 
     public String getMPinId() {
-        return nGetMPinId(mPtr);
+        return getSnapshot().getMPinId();
     }
 
     @Override
     public void close() {
         synchronized (this) {
-            nDestruct(mPtr);
+            mCleanable.clean();
             mPtr = 0;
         }
     }
 
-    @Override
-    protected void finalize() throws Throwable {
-        close();
-        super.finalize();
-    }
-
     @Override
     public String toString() {
         return getId();
@@ -123,27 +132,47 @@ public class User implements Closeable {
 
     private User(long ptr) {
         mPtr = ptr;
+        mCleanable = NativeCleaner.register(this, ptr, DEALLOCATOR);
     }
 
-    private native void nDestruct(long ptr);
-
-    private native String nGetId(long ptr);
-
-    private native void nGetRegistrationExpiration(long ptr, Expiration expiration);
-
-    private native int nGetState(long ptr);
-
-    private native String nGetVerificationType(long ptr);
-
-    private native String nGetBackend(long ptr);
-
-    private native String nGetCustomerId(long ptr);
+    static State toState(int state) {
+        switch (state) {
+            case 1:
+                return State.STARTED_VERIFICATION;
+            case 2:
+                return State.STARTED_REGISTRATION;
+            case 3:
+                return State.ACTIVATED;
+            case 4:
+                return State.REGISTERED;
+            case 5:
+                return State.BLOCKED;
+            default:
+                return State.INVALID;
+        }
+    }
 
-    private native String nGetAppId(long ptr);
+    static VerificationType toVerificationType(String verificationType) {
+        if (verificationType == null) {
+            return VerificationType.NONE;
+        }
+        switch (verificationType) {
+            case "em":
+                return VerificationType.EMAIL;
+            case "rc":
+                return VerificationType.REG_CODE;
+            case "dvs":
+                return VerificationType.DVS;
+            case "pv":
+                return VerificationType.PLUGGABLE;
+            default:
+                return VerificationType.NONE;
+        }
+    }
 
-    private native boolean nCanSign(long ptr);
+    private static native void nDestruct(long ptr);
 
-    private native int nGetPinLength(long ptr);
+    private native UserSnapshot nGetSnapshot(long ptr);
 
-    private native String nGetMPinId(long ptr);
+    private native void nGetRegistrationExpiration(long ptr, Expiration expiration);
 }
@@ -0,0 +1,90 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.model;
+
+
+/**
+ * Immutable copy of the descriptive fields of a {@link User}, fetched from the native SDK in a single call.
+ */
+public final class UserSnapshot {
+
+    private final String           id;
+    private final String           backend;
+    private final String           customerId;
+    private final String           appId;
+    private final String           mpinId;
+    private final User.State       state;
+    private final VerificationType verificationType;
+    private final int              pinLength;
+    private final boolean          canSign;
+
+    private UserSnapshot(String id, String backend, String customerId, String appId, String mpinId, int state,
+                         String verificationType, int pinLength, boolean canSign) {
+        this.id = id;
+        this.backend = backend;
+        this.customerId = customerId;
+        this.appId = appId;
+        this.mpinId = mpinId;
+        this.state = User.toState(state);
+        this.verificationType = User.toVerificationType(verificationType);
+        this.pinLength = pinLength;
+        this.canSign = canSign;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getBackend() {
+        return backend;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public String getAppId() {
+        return appId;
+    }
+
+    public String getMPinId() {
+        return mpinId;
+    }
+
+    public User.State getState() {
+        return state;
+    }
+
+    public VerificationType getVerificationType() {
+        return verificationType;
+    }
+
+    public int getPinLength() {
+        return pinLength;
+    }
+
+    public boolean canSign() {
+        return canSign;
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
@@ -7,4 +7,13 @@ public class VerificationResult {
     public String activationToken;
 
     public long expireTime;
+
+    /**
+     * Called by the native code to fill in all the fields with a single JNI call
+     */
+    private void set(String accessCode, String activationToken, long expireTime) {
+        this.accessCode = accessCode;
+        this.activationToken = activationToken;
+        this.expireTime = expireTime;
+    }
 }
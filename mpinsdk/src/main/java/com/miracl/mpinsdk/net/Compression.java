@@ -0,0 +1,110 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.net;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+
+final class Compression {
+
+    static final String ACCEPT_ENCODING_HEADER  = "Accept-Encoding";
+    static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    static final String ACCEPTED_ENCODINGS      = "gzip, deflate";
+    static final String GZIP                    = "gzip";
+    static final String DEFLATE                 = "deflate";
+
+    static final CompressionStats STATS = new CompressionStats();
+
+    private Compression() {
+    }
+
+    static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 2);
+        GZIPOutputStream gzip = new GZIPOutputStream(bos);
+        try {
+            gzip.write(data);
+        } finally {
+            gzip.close();
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Wrap a response stream with a decoder for its content encoding.
+     *
+     * @return The decoding stream or <code>null</code> if the body is not compressed
+     */
+    static InputStream decode(InputStream is, String contentEncoding) throws IOException {
+        if (contentEncoding == null) {
+            return null;
+        }
+        String encoding = contentEncoding.trim();
+        if (GZIP.equalsIgnoreCase(encoding)) {
+            return new GZIPInputStream(is);
+        } else if (DEFLATE.equalsIgnoreCase(encoding)) {
+            return new InflaterInputStream(is);
+        }
+        return null;
+    }
+
+    static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
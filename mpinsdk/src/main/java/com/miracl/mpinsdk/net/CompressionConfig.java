@@ -0,0 +1,88 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.net;
+
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Configuration of the compression of the SDK traffic. When compression is enabled for a backend, the SDK negotiates
+ * gzip/deflate compressed responses and, if request compression is on, gzips request bodies larger than a threshold.
+ * Request compression should be enabled only for backends that accept gzip encoded request bodies.
+ */
+public class CompressionConfig {
+
+    public static final int DEFAULT_REQUEST_THRESHOLD = 1024;
+
+    private final boolean              compressRequests;
+    private final int                  requestThreshold;
+    private final Map<String, Boolean> backends = new ConcurrentHashMap<>();
+
+    /**
+     * Negotiate compressed responses from all backends without compressing the request bodies.
+     */
+    public CompressionConfig() {
+        this(false, DEFAULT_REQUEST_THRESHOLD);
+    }
+
+    /**
+     * @param compressRequests
+     *   Whether to gzip request bodies sent to the backends with enabled compression
+     * @param requestThreshold
+     *   The minimum size in bytes of a request body to be compressed
+     */
+    public CompressionConfig(boolean compressRequests, int requestThreshold) {
+        if (requestThreshold < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.compressRequests = compressRequests;
+        this.requestThreshold = requestThreshold;
+    }
+
+    /**
+     * Switch the compression for a backend. Compression is enabled for all backends unless disabled with this method.
+     *
+     * @param backendHost
+     *   The host of the backend, for example <code>api.mpin.io</code>
+     * @param enabled
+     *   Whether the traffic to the backend should be compressed
+     */
+    public void setEnabled(String backendHost, boolean enabled) {
+        backends.put(backendHost.toLowerCase(Locale.US), enabled);
+    }
+
+    public boolean isEnabled(String backendHost) {
+        if (backendHost == null) {
+            return false;
+        }
+        Boolean enabled = backends.get(backendHost.toLowerCase(Locale.US));
+        return enabled == null || enabled;
+    }
+
+    public boolean isCompressRequests() {
+        return compressRequests;
+    }
+
+    public int getRequestThreshold() {
+        return requestThreshold;
+    }
+}
@@ -0,0 +1,71 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.net;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Counters of the bytes saved by compressing the SDK traffic.
+ *
+ * @see CompressionConfig
+ */
+public class CompressionStats {
+
+    private final AtomicLong requestBytesSaved  = new AtomicLong();
+    private final AtomicLong responseBytesSaved = new AtomicLong();
+    private final AtomicLong compressedRequests  = new AtomicLong();
+    private final AtomicLong compressedResponses = new AtomicLong();
+
+    CompressionStats() {
+    }
+
+    /**
+     * @return The number of bytes by which the compressed request bodies were smaller than the original ones
+     */
+    public long getRequestBytesSaved() {
+        return requestBytesSaved.get();
+    }
+
+    /**
+     * @return The number of bytes by which the received compressed response bodies were smaller than the decoded ones
+     */
+    public long getResponseBytesSaved() {
+        return responseBytesSaved.get();
+    }
+
+    public long getCompressedRequests() {
+        return compressedRequests.get();
+    }
+
+    public long getCompressedResponses() {
+        return compressedResponses.get();
+    }
+
+    void onRequestCompressed(long originalSize, long compressedSize) {
+        compressedRequests.incrementAndGet();
+        requestBytesSaved.addAndGet(originalSize - compressedSize);
+    }
+
+    void onResponseDecompressed(long compressedSize, long decodedSize) {
+        compressedResponses.incrementAndGet();
+        responseBytesSaved.addAndGet(decodedSize - compressedSize);
+    }
+}
@@ -19,68 +19,155 @@
 package com.miracl.mpinsdk.net;
 
 
+import android.net.Uri;
+import android.os.SystemClock;
 import android.text.TextUtils;
 
-import java.io.BufferedWriter;
-import java.io.DataOutputStream;
-import java.io.FileNotFoundException;
+import com.miracl.mpinsdk.util.StringMapCodec;
+
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.Enumeration;
-import java.util.Hashtable;
-import java.util.List;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 
 public class HTTPConnector implements IHTTPRequest {
 
-    private final static String OS_CLASS_HEADER = "X-MIRACL-OS-Class";
-    private final static String OS_CLASS_VALUE  = "android";
-
-    private Hashtable<String, String> requestHeaders;
-    private Hashtable<String, String> queryParams;
-    private String                    requestBody;
-    private int                       timeout;
-    private String                    errorMessage;
-    private int                       statusCode;
-    private Hashtable<String, String> responseHeaders;
-    private String                    responseData;
-
-    private static String toString(InputStream is) throws IOException {
-        InputStreamReader isr = null;
-        try {
-            isr = new InputStreamReader(is, "UTF-8");
-            char[] buf = new char[512];
-            StringBuilder str = new StringBuilder();
-            int i;
-            while ((i = isr.read(buf)) != -1) {
-                str.append(buf, 0, i);
-            }
-            return str.toString();
-        } finally {
-            if (isr != null) {
-                isr.close();
-            }
+    private final static String  OS_CLASS_HEADER           = "X-MIRACL-OS-Class";
+    private final static String  OS_CLASS_VALUE            = "android";
+    private final static String  DEADLINE_EXCEEDED_MESSAGE = "The operation deadline was exceeded";
+    private final static String  CANCELED_MESSAGE          = "The operation was canceled";
+    private final static Charset UTF_8                     = Charset.forName("UTF-8");
+
+    private static volatile IHTTPTransport     transport = new UrlConnectionTransport();
+    private static volatile CompressionConfig  compression;
+    private static volatile ResponseCache      responseCache;
+    private static volatile RetryConfig        retryConfig;
+    private static volatile IHTTPEventListener eventListener;
+
+    private static final ExecutorService prewarmExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "SDK Prewarm Thread");
+            thread.setDaemon(true);
+            return thread;
         }
-    }
+    });
+
+    private Map<String, String> requestHeaders;
+    private Map<String, String> queryParams;
+    private String              requestBody;
+    private int                 timeoutMs;
+    private String              errorMessage;
+    private int                 statusCode;
+    private byte[]              responseHeaders;
+    private ByteBuffer          responseBody;
+    private int                 responseLength;
 
     public HTTPConnector() {
         super();
-        timeout = DEFAULT_TIMEOUT;
+        timeoutMs = DEFAULT_TIMEOUT_SECONDS * 1000;
+    }
+
+    /**
+     * Set the transport used to execute the requests of all SDK instances.
+     *
+     * @param httpTransport
+     *   The transport or <code>null</code> to use the default {@link UrlConnectionTransport}
+     */
+    public static void setTransport(IHTTPTransport httpTransport) {
+        transport = httpTransport != null ? httpTransport : new UrlConnectionTransport();
+    }
+
+    /**
+     * Set the compression of the requests of all SDK instances.
+     *
+     * @param config
+     *   The compression configuration or <code>null</code> to leave the encoding of the traffic to the transport
+     */
+    public static void setCompression(CompressionConfig config) {
+        compression = config;
+    }
+
+    /**
+     * Set the cache of the responses of all SDK instances.
+     *
+     * @param cache
+     *   The cache or <code>null</code> to make every request to the backend
+     */
+    public static void setResponseCache(ResponseCache cache) {
+        responseCache = cache;
+    }
+
+    /**
+     * Set the retry configuration of the requests of all SDK instances.
+     *
+     * @param config
+     *   The retry configuration or <code>null</code> to make a single attempt for each request
+     */
+    public static void setRetryConfig(RetryConfig config) {
+        retryConfig = config;
+    }
+
+    /**
+     * Set the listener for the HTTP requests of all SDK instances.
+     *
+     * @param listener
+     *   The listener or <code>null</code> to stop reporting the requests
+     */
+    public static void setEventListener(IHTTPEventListener listener) {
+        eventListener = listener;
+    }
+
+    /**
+     * @return The counters of the bytes saved by compression, accumulated since the process start
+     */
+    public static CompressionStats getCompressionStats() {
+        return Compression.STATS;
+    }
+
+    /**
+     * Prepare a connection to a backend in the background with the current transport. Failures are ignored, the
+     * following requests just open their own connection.
+     *
+     * @param url
+     *   The URL of the backend
+     * @see IHTTPTransport#prewarm(String)
+     */
+    public static void prewarm(final String url) {
+        if (TextUtils.isEmpty(url)) {
+            throw new IllegalArgumentException();
+        }
+
+        final IHTTPTransport httpTransport = transport;
+        prewarmExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    httpTransport.prewarm(url);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        });
     }
 
     @Override
-    public void SetHeaders(Hashtable<String, String> headers) {
-        this.requestHeaders = headers;
+    public void SetHeaders(byte[] headers) {
+        this.requestHeaders = StringMapCodec.decode(headers);
     }
 
     @Override
-    public void SetQueryParams(Hashtable<String, String> queryParams) {
-        this.queryParams = queryParams;
+    public void SetQueryParams(byte[] queryParams) {
+        this.queryParams = StringMapCodec.decode(queryParams);
     }
 
     @Override
@@ -93,7 +180,7 @@ public class HTTPConnector implements IHTTPRequest {
         if (seconds <= 0) {
             throw new IllegalArgumentException();
         }
-        this.timeout = seconds;
+        this.timeoutMs = seconds * 1000;
     }
 
     @Override
@@ -102,16 +189,64 @@ public class HTTPConnector implements IHTTPRequest {
             throw new IllegalArgumentException();
         }
 
-        String fullUrl = addQueryParamsToUrl(url);
+        OperationContext operation = OperationContext.current();
+        int timeout = timeoutMs;
+        if (operation != null) {
+            if (operation.isCanceled()) {
+                errorMessage = CANCELED_MESSAGE;
+                return false;
+            }
+            long remainingMs = operation.getRemainingMs();
+            if (remainingMs <= 0) {
+                operation.onDeadlineExceeded();
+                errorMessage = DEADLINE_EXCEEDED_MESSAGE;
+                return false;
+            }
+            timeout = (int) Math.min(timeout, remainingMs);
+        }
 
+        long start = SystemClock.elapsedRealtime();
+        String httpMethod = HttpMethodMapper(method);
+        String requestUrl = addQueryParamsToUrl(url);
         try {
-            responseData = sendRequest(fullUrl, HttpMethodMapper(method), requestBody, requestHeaders);
-        } catch (FileNotFoundException e) {
-            // No data in response
-            e.printStackTrace();
+            HTTPRequest request = createRequest(httpMethod, requestUrl, timeout);
+            IHTTPTransport httpTransport = transport;
+            RetryConfig retry = retryConfig;
+            if (retry != null) {
+                httpTransport = new RetryingTransport(retry, httpTransport);
+            }
+            ResponseCache cache = responseCache;
+            HTTPResponse response;
+            if (operation != null) {
+                operation.onRequestStarted();
+            }
+            try {
+                response = cache != null ? cache.execute(request, httpTransport) : httpTransport.execute(request);
+            } finally {
+                if (operation != null) {
+                    operation.onRequestFinished();
+                }
+            }
+            statusCode = response.getStatusCode();
+            responseHeaders = StringMapCodec.encode(response.getHeaders());
+            ByteBuffer body = response.getBody();
+            if (body != null) {
+                // The native side reads the body directly from the buffer memory
+                responseBody = body.slice();
+                responseLength = responseBody.remaining();
+            }
+            reportEvent(operation, httpMethod, requestUrl, statusCode, null, start, response.getTimings());
         } catch (Exception e) {
             e.printStackTrace();
             errorMessage = e.getLocalizedMessage();
+            if (operation != null && operation.isCanceled()) {
+                errorMessage = CANCELED_MESSAGE;
+            } else if (operation != null && e instanceof InterruptedIOException && operation.getRemainingMs() <= 0) {
+                // The request timed out because it was given the rest of the operation budget
+                operation.onDeadlineExceeded();
+                errorMessage = DEADLINE_EXCEEDED_MESSAGE;
+            }
+            reportEvent(operation, httpMethod, requestUrl, -1, errorMessage, start, null);
             return false;
         }
 
@@ -129,99 +264,71 @@ public class HTTPConnector implements IHTTPRequest {
     }
 
     @Override
-    public Hashtable<String, String> GetResponseHeaders() {
+    public byte[] GetResponseHeaders() {
         return responseHeaders;
     }
 
     @Override
     public String GetResponseData() {
-        return responseData;
+        return HTTPResponse.decode(responseBody);
     }
 
-    private String sendRequest(String serviceURL, String httpMethod, String requestBody,
-                               Hashtable<String, String> requestProperties) throws IOException {
+    @Override
+    public void Reset() {
+        requestHeaders = null;
+        queryParams = null;
+        requestBody = null;
+        timeoutMs = DEFAULT_TIMEOUT_SECONDS * 1000;
+        errorMessage = null;
+        statusCode = 0;
+        responseHeaders = null;
+        responseBody = null;
+        responseLength = 0;
+    }
 
-        HttpURLConnection connection = null;
-        DataOutputStream dos = null;
-        String response;
+    private void reportEvent(OperationContext operation, String method, String url, int statusCode, String error,
+                             long start, HTTPTimings timings) {
+        IHTTPEventListener listener = eventListener;
+        if (listener == null) {
+            return;
+        }
 
+        HTTPEvent event = new HTTPEvent(operation != null ? operation.getName() : null, method, Uri.parse(url).getPath(),
+          statusCode, error, SystemClock.elapsedRealtime() - start, timings != null ? timings : new HTTPTimings());
         try {
-            connection = getConnection(serviceURL, !TextUtils.isEmpty(requestBody));
-
-            connection.setRequestMethod(httpMethod);
-            connection.setConnectTimeout(timeout);
-
-            // Set request properties
-            connection.setRequestProperty(OS_CLASS_HEADER, OS_CLASS_VALUE);
-            if (requestProperties != null && !requestProperties.isEmpty()) {
-
-                Enumeration<String> keyEnum = requestProperties.keys();
-                while (keyEnum.hasMoreElements()) {
-                    String key = keyEnum.nextElement();
-                    connection.setRequestProperty(key, requestProperties.get(key));
-                }
-            }
-
-            // Set request body
-            if (!TextUtils.isEmpty(requestBody)) {
-                dos = new DataOutputStream(connection.getOutputStream());
-                BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(dos, "UTF-8"));
-                writer.write(requestBody);
-                writer.close();
-            }
-
-            // Starts the query
-            connection.connect();
-
-            try {
-                statusCode = connection.getResponseCode();
-            } catch (IOException e) {
-                statusCode = connection.getResponseCode();
-                if (statusCode != 401) {
-                    throw e;
-                }
-            }
-
-            setResponseHeaders(connection.getHeaderFields());
-
-            response = toString(connection.getInputStream());
-        } finally {
-            if (dos != null) {
-                dos.close();
-            }
-            if (connection != null) {
-                connection.disconnect();
-            }
+            listener.onRequestFinished(event);
+        } catch (Exception e) {
+            e.printStackTrace();
         }
-
-        return response;
     }
 
-    private void setResponseHeaders(Map<String, List<String>> headers) {
-        responseHeaders = new Hashtable<>();
-
-        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
-            String key = entry.getKey();
-
-            if (key != null) {
-                List<String> propertyList = entry.getValue();
-                StringBuilder properties = new StringBuilder();
-
-                for (String property : propertyList) {
-                    properties.append(property);
+    private HTTPRequest createRequest(String method, String url, int timeout) throws IOException {
+        Map<String, String> headers = getRequestHeaders();
+        byte[] body = TextUtils.isEmpty(requestBody) ? null : requestBody.getBytes(UTF_8);
+
+        CompressionConfig config = compression;
+        if (config != null && config.isEnabled(Uri.parse(url).getHost())) {
+            headers.put(Compression.ACCEPT_ENCODING_HEADER, Compression.ACCEPTED_ENCODINGS);
+            if (body != null && config.isCompressRequests() && body.length >= config.getRequestThreshold()) {
+                byte[] compressed = Compression.gzip(body);
+                if (compressed.length < body.length) {
+                    Compression.STATS.onRequestCompressed(body.length, compressed.length);
+                    headers.put(Compression.CONTENT_ENCODING_HEADER, Compression.GZIP);
+                    body = compressed;
                 }
-
-                responseHeaders.put(entry.getKey(), properties.toString());
             }
         }
-    }
 
-    private HttpURLConnection getConnection(String serviceURL, boolean output) throws IOException {
+        return new HTTPRequest(method, url, headers, body, timeout);
+    }
 
-        HttpURLConnection httpConnection = (HttpURLConnection) new URL(serviceURL).openConnection();
-        httpConnection.setDoInput(true);
-        httpConnection.setDoOutput(output);
-        return httpConnection;
+    private Map<String, String> getRequestHeaders() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put(OS_CLASS_HEADER, OS_CLASS_VALUE);
+        if (requestHeaders != null) {
+            headers.putAll(requestHeaders);
+        }
+        return headers;
     }
 
     private String HttpMethodMapper(int method) {
@@ -245,14 +352,14 @@ public class HTTPConnector implements IHTTPRequest {
         StringBuilder urlBuilder = new StringBuilder(url);
 
         if (queryParams != null && !queryParams.isEmpty()) {
-            Enumeration<String> keyEnum = queryParams.keys();
+            Iterator<Map.Entry<String, String>> entries = queryParams.entrySet().iterator();
             urlBuilder.append("?");
 
-            while (keyEnum.hasMoreElements()) {
-                String key = keyEnum.nextElement();
-                urlBuilder.append(key).append("=").append(queryParams.get(key));
+            while (entries.hasNext()) {
+                Map.Entry<String, String> entry = entries.next();
+                urlBuilder.append(entry.getKey()).append("=").append(entry.getValue());
 
-                if (keyEnum.hasMoreElements()) {
+                if (entries.hasNext()) {
                     urlBuilder.append("&");
                 }
             }
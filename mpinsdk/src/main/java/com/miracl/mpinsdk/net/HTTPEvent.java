@@ -0,0 +1,92 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.net;
+
+
+/**
+ * A HTTP request made by the SDK, reported to an {@link IHTTPEventListener} when it finishes.
+ */
+public class HTTPEvent {
+
+    private final String      operation;
+    private final String      method;
+    private final String      path;
+    private final int         statusCode;
+    private final String      error;
+    private final long        totalMs;
+    private final HTTPTimings timings;
+
+    HTTPEvent(String operation, String method, String path, int statusCode, String error, long totalMs,
+              HTTPTimings timings) {
+        this.operation = operation;
+        this.method = method;
+        this.path = path;
+        this.statusCode = statusCode;
+        this.error = error;
+        this.totalMs = totalMs;
+        this.timings = timings;
+    }
+
+    /**
+     * @return The name of the SDK operation that made the request, for example <code>getSessionDetails</code>, or
+     * <code>null</code> if the request was not made within an {@link OperationContext}
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return The path of the endpoint, without the query parameters
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return The HTTP status code of the response or <code>-1</code> if the request failed
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return The error message if the request failed, otherwise <code>null</code>
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return The total time of the request, including retries
+     */
+    public long getTotalMs() {
+        return totalMs;
+    }
+
+    /**
+     * @return The timings of the request phases of the attempt that produced the response
+     */
+    public HTTPTimings getTimings() {
+        return timings;
+    }
+}
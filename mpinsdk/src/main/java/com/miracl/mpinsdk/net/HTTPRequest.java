@@ -0,0 +1,78 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.net;
+
+
+import java.util.Collections;
+import java.util.Map;
+
+
+/**
+ * A request made by the SDK, as passed to an {@link IHTTPTransport}.
+ */
+public class HTTPRequest {
+
+    private final String              method;
+    private final String              url;
+    private final Map<String, String> headers;
+    private final byte[]              body;
+    private final int                 timeout;
+
+    HTTPRequest(String method, String url, Map<String, String> headers, byte[] body, int timeout) {
+        this.method = method;
+        this.url = url;
+        this.headers = Collections.unmodifiableMap(headers);
+        this.body = body;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return The HTTP method, for example <code>GET</code>
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return The full URL of the request, including the query parameters
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return The encoded request body or <code>null</code> if the request has no body. If the body is compressed, the
+     * request has a <code>Content-Encoding</code> header.
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @return The timeout for the request in milliseconds, applied to connecting, writing the request and reading the
+     * response. The timeout is already reduced to the remaining time budget of the operation making the request.
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+}
@@ -0,0 +1,216 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.net;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * A response returned by an {@link IHTTPTransport}. The body is kept as bytes in a direct {@link ByteBuffer}, from where
+ * it is consumed by the native SDK core without being decoded to a Java string.
+ */
+public class HTTPResponse {
+
+    private static final Charset UTF_8                = Charset.forName("UTF-8");
+    private static final int     CHUNK_SIZE           = 8 * 1024;
+    // The most a response allocates up front from its Content-Length, a larger body grows the buffer as it's read
+    private static final int     MAX_INITIAL_CAPACITY = 256 * 1024;
+
+    private final int                 statusCode;
+    private final Map<String, String> headers;
+    private final ByteBuffer          body;
+
+    private HTTPTimings timings;
+    private long        receivedBytes = -1;
+
+    /**
+     * @param statusCode
+     *   The HTTP status code of the response
+     * @param headers
+     *   The response headers. Multiple values of a header should be joined in a single value, separated by
+     *   <code>", "</code>, as done by {@link #joinHeaderValues}.
+     * @param data
+     *   The response body or <code>null</code> if there is no body or the status code is an error one
+     */
+    public HTTPResponse(int statusCode, Map<String, String> headers, String data) {
+        this(statusCode, headers, data != null ? toDirectBuffer(data.getBytes(UTF_8)) : null);
+    }
+
+    /**
+     * @param statusCode
+     *   The HTTP status code of the response
+     * @param headers
+     *   The response headers. Multiple values of a header should be joined in a single value, separated by
+     *   <code>", "</code>, as done by {@link #joinHeaderValues}.
+     * @param body
+     *   The response body between its position and limit or <code>null</code> if there is no body or the status code is
+     *   an error one
+     */
+    public HTTPResponse(int statusCode, Map<String, String> headers, ByteBuffer body) {
+        this.statusCode = statusCode;
+        this.headers = headers != null ? headers : Collections.<String, String>emptyMap();
+        if (body != null && !body.isDirect()) {
+            ByteBuffer direct = ByteBuffer.allocateDirect(body.remaining());
+            direct.put(body.duplicate());
+            direct.flip();
+            body = direct;
+        }
+        this.body = body;
+    }
+
+    /**
+     * Create a response reading its body from a stream. The stream is read to its end and closed. A body with a gzip or
+     * deflate <code>Content-Encoding</code> is decoded.
+     *
+     * @param contentLength
+     *   The expected length of the body or <code>-1</code> if unknown
+     */
+    public static HTTPResponse fromStream(int statusCode, Map<String, String> headers, InputStream bodyStream,
+                                          long contentLength) throws IOException {
+        String contentEncoding =
+          headers != null ? getHeader(headers, Compression.CONTENT_ENCODING_HEADER) : null;
+        Compression.CountingInputStream wireStream = new Compression.CountingInputStream(bodyStream);
+        InputStream decodedStream = Compression.decode(wireStream, contentEncoding);
+        HTTPResponse response;
+        if (decodedStream == null) {
+            response = new HTTPResponse(statusCode, headers, readFully(wireStream, contentLength));
+        } else {
+            // The content length is the one of the encoded body, the buffer grows as the larger decoded body is read
+            ByteBuffer body = readFully(decodedStream, contentLength);
+            Compression.STATS.onResponseDecompressed(wireStream.getCount(), body.remaining());
+            response = new HTTPResponse(statusCode, headers, body);
+        }
+        response.receivedBytes = wireStream.getCount();
+        return response;
+    }
+
+    /**
+     * @return The value of a header, looked up case insensitively, or <code>null</code> if the header is missing
+     */
+    static String getHeader(Map<String, String> headers, String name) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The values of a header that is repeated in a response, joined in a single value as the HTTP specification
+     * allows for list valued headers
+     */
+    public static String joinHeaderValues(List<String> values) {
+        StringBuilder joined = new StringBuilder();
+        for (String value : values) {
+            if (joined.length() > 0) {
+                joined.append(", ");
+            }
+            joined.append(value);
+        }
+        return joined.toString();
+    }
+
+    private static ByteBuffer readFully(InputStream is, long contentLength) throws IOException {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(
+              contentLength >= 0 ? (int) Math.min(contentLength, MAX_INITIAL_CAPACITY) : CHUNK_SIZE);
+            byte[] chunk = new byte[CHUNK_SIZE];
+            int read;
+            while ((read = is.read(chunk)) != -1) {
+                if (buffer.remaining() < read) {
+                    ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + read));
+                    buffer.flip();
+                    grown.put(buffer);
+                    buffer = grown;
+                }
+                buffer.put(chunk, 0, read);
+            }
+            buffer.flip();
+            return buffer;
+        } finally {
+            is.close();
+        }
+    }
+
+    private static ByteBuffer toDirectBuffer(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+        return buffer;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return The value of a header, looked up case insensitively, or <code>null</code> if the header is missing
+     */
+    public String getHeader(String name) {
+        return getHeader(headers, name);
+    }
+
+    /**
+     * @return A read-only view of the response body or <code>null</code> if there is no body
+     */
+    public ByteBuffer getBody() {
+        return body != null ? body.asReadOnlyBuffer() : null;
+    }
+
+    /**
+     * @return The timings of the request as measured by the transport or <code>null</code> if not measured
+     */
+    public HTTPTimings getTimings() {
+        return timings;
+    }
+
+    void setTimings(HTTPTimings timings) {
+        this.timings = timings;
+    }
+
+    /**
+     * @return The number of body bytes received, before decoding, or <code>-1</code> if unknown
+     */
+    long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    /**
+     * @return The response body decoded as UTF-8 or <code>null</code> if there is no body
+     */
+    public String getData() {
+        return decode(body);
+    }
+
+    static String decode(ByteBuffer body) {
+        return body != null ? UTF_8.decode(body.duplicate()).toString() : null;
+    }
+}
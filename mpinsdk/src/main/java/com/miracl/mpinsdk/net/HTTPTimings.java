@@ -0,0 +1,103 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.net;
+
+
+/**
+ * Timings of the phases of a HTTP request, as measured by the transport. Phases that the transport could not measure are
+ * reported as <code>-1</code>. Phases skipped because a pooled connection was reused are reported as <code>0</code>.
+ */
+public class HTTPTimings {
+
+    long    dnsMs             = -1;
+    long    connectMs         = -1;
+    long    tlsMs             = -1;
+    long    requestWriteMs    = -1;
+    long    timeToFirstByteMs = -1;
+    long    bodyReadMs        = -1;
+    long    requestBytes      = -1;
+    long    responseBytes     = -1;
+    boolean fromCache;
+
+    HTTPTimings() {
+    }
+
+    static HTTPTimings fromCache() {
+        HTTPTimings timings = new HTTPTimings();
+        timings.fromCache = true;
+        timings.requestBytes = 0;
+        timings.responseBytes = 0;
+        return timings;
+    }
+
+    public long getDnsMs() {
+        return dnsMs;
+    }
+
+    /**
+     * @return The time to establish the TCP connection. Transports that cannot measure the DNS lookup and the TLS
+     * handshake separately include them in this time.
+     */
+    public long getConnectMs() {
+        return connectMs;
+    }
+
+    public long getTlsMs() {
+        return tlsMs;
+    }
+
+    /**
+     * @return The time to send the request headers and body
+     */
+    public long getRequestWriteMs() {
+        return requestWriteMs;
+    }
+
+    /**
+     * @return The time from the request being sent until the response headers start to arrive
+     */
+    public long getTimeToFirstByteMs() {
+        return timeToFirstByteMs;
+    }
+
+    public long getBodyReadMs() {
+        return bodyReadMs;
+    }
+
+    /**
+     * @return The size of the request body sent, after compression
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * @return The size of the response body received, before decompression
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * @return Whether the response was served by the {@link ResponseCache} without a request to the backend
+     */
+    public boolean isFromCache() {
+        return fromCache;
+    }
+}
@@ -19,9 +19,6 @@
 package com.miracl.mpinsdk.net;
 
 
-import java.util.Hashtable;
-
-
 interface IHTTPRequest {
 
     int GET     = 0;
@@ -36,14 +33,23 @@ interface IHTTPRequest {
     String HTTP_DELETE  = "DELETE";
     String HTTP_OPTIONS = "OPTIONS";
     String HTTP_PATCH   = "PATCH";
+    String HTTP_HEAD    = "HEAD";
 
-    int DEFAULT_TIMEOUT = 10 * 1000;
+    int DEFAULT_TIMEOUT_SECONDS = 10;
 
 
-    void SetHeaders(Hashtable<String, String> headers);
+    /**
+     * @param headers
+     *   The request headers, encoded with {@link com.miracl.mpinsdk.util.StringMapCodec}
+     */
+    void SetHeaders(byte[] headers);
 
 
-    void SetQueryParams(Hashtable<String, String> queryParams);
+    /**
+     * @param queryParams
+     *   The query parameters, encoded with {@link com.miracl.mpinsdk.util.StringMapCodec}
+     */
+    void SetQueryParams(byte[] queryParams);
 
 
     void SetContent(String data);
@@ -61,8 +67,17 @@ interface IHTTPRequest {
     int GetHttpStatusCode();
 
 
-    Hashtable<String, String> GetResponseHeaders();
+    /**
+     * @return The response headers, encoded with {@link com.miracl.mpinsdk.util.StringMapCodec}
+     */
+    byte[] GetResponseHeaders();
 
 
     String GetResponseData();
+
+
+    /**
+     * Clears the state of the last request, so the same instance can be reused for the next one.
+     */
+    void Reset();
 }
@@ -0,0 +1,57 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.net;
+
+
+import java.io.IOException;
+
+
+/**
+ * Transport used by the SDK to execute its HTTP requests. A transport can be registered with
+ * {@link com.miracl.mpinsdk.MPinMFA#setHttpTransport(IHTTPTransport)} in order to route the SDK traffic through the
+ * application's HTTP stack. Implementations should be thread safe.
+ *
+ * @see UrlConnectionTransport
+ * @see OkHttpTransport
+ */
+public interface IHTTPTransport {
+
+    /**
+     * Execute a request and return its response. Responses with any HTTP status code, including error codes, should be
+     * returned; an exception should be thrown only when no response could be obtained.
+     *
+     * @param request
+     *   The request to execute
+     * @return The response from the server
+     * @throws IOException
+     *   If the request could not be executed
+     */
+    HTTPResponse execute(HTTPRequest request) throws IOException;
+
+    /**
+     * Prepare a connection to a backend ahead of the requests to it, so the first request can reuse it. Implementations
+     * should resolve the backend host, open the TCP/TLS connection and keep it in their connection pool.
+     *
+     * @param url
+     *   The URL of the backend
+     * @throws IOException
+     *   If the connection could not be established
+     */
+    void prewarm(String url) throws IOException;
+}
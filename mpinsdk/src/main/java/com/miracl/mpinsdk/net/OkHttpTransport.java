@@ -0,0 +1,324 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.net;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+
+/**
+ * {@link IHTTPTransport} backed by an application provided {@link OkHttpClient}. Requests share the connection pool and
+ * dispatcher of the client, and are multiplexed over a single HTTP/2 connection per backend when the server supports it.
+ * <p>
+ * The SDK does not bundle OkHttp, the application should declare it as a dependency in order to use this transport.
+ */
+public class OkHttpTransport implements IHTTPTransport {
+
+    private static final String CONTENT_TYPE_HEADER = "Content-Type";
+
+    private final OkHttpClient client;
+
+    public OkHttpTransport(OkHttpClient client) {
+        if (client == null) {
+            throw new IllegalArgumentException();
+        }
+        // The timings are collected by an event listener that forwards the events to the client's own one
+        this.client = client.newBuilder()
+          .eventListenerFactory(new TimingEventListenerFactory(client.eventListenerFactory()))
+          .build();
+    }
+
+    @Override
+    public HTTPResponse execute(HTTPRequest request) throws IOException {
+        HTTPTimings timings = new HTTPTimings();
+        HTTPResponse httpResponse;
+        final Call call = getClient(request.getTimeout()).newCall(toOkHttpRequest(request, timings));
+        OperationContext operation = OperationContext.current();
+        if (operation != null) {
+            operation.setConnection(new Closeable() {
+
+                @Override
+                public void close() {
+                    call.cancel();
+                }
+            });
+        }
+        Response response = null;
+        try {
+            response = call.execute();
+            Map<String, String> headers = new HashMap<>();
+            for (String name : response.headers().names()) {
+                headers.put(name, HTTPResponse.joinHeaderValues(response.headers().values(name)));
+            }
+
+            ResponseBody body = response.body();
+            if (body != null && response.code() < 400) {
+                httpResponse = HTTPResponse.fromStream(response.code(), headers, body.byteStream(), body.contentLength());
+            } else {
+                httpResponse = new HTTPResponse(response.code(), headers, (ByteBuffer) null);
+            }
+        } finally {
+            if (operation != null) {
+                operation.setConnection(null);
+            }
+            if (response != null) {
+                response.close();
+            }
+        }
+
+        httpResponse.setTimings(timings);
+        return httpResponse;
+    }
+
+    /**
+     * Make a <code>HEAD</code> request to the backend, which leaves an open connection to it in the client's pool.
+     */
+    @Override
+    public void prewarm(String url) throws IOException {
+        Request request = new Request.Builder().url(url).head().build();
+        client.newCall(request).execute().close();
+    }
+
+    private OkHttpClient getClient(int timeout) {
+        if (client.connectTimeoutMillis() == timeout && client.readTimeoutMillis() == timeout
+          && client.writeTimeoutMillis() == timeout && client.callTimeoutMillis() == timeout) {
+            return client;
+        }
+        // The derived client shares the connection pool and the dispatcher of the original one
+        return client.newBuilder()
+          .connectTimeout(timeout, TimeUnit.MILLISECONDS)
+          .readTimeout(timeout, TimeUnit.MILLISECONDS)
+          .writeTimeout(timeout, TimeUnit.MILLISECONDS)
+          .callTimeout(timeout, TimeUnit.MILLISECONDS)
+          .build();
+    }
+
+    private Request toOkHttpRequest(HTTPRequest request, HTTPTimings timings) {
+        Request.Builder builder = new Request.Builder().url(request.getUrl()).tag(timings);
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+
+        RequestBody body = null;
+        String method = request.getMethod();
+        if (request.getBody() != null) {
+            MediaType contentType = null;
+            String contentTypeHeader = request.getHeaders().get(CONTENT_TYPE_HEADER);
+            if (contentTypeHeader != null) {
+                contentType = MediaType.parse(contentTypeHeader);
+            }
+            body = RequestBody.create(contentType, request.getBody());
+        } else if (IHTTPRequest.HTTP_POST.equals(method) || IHTTPRequest.HTTP_PUT.equals(method) || IHTTPRequest.HTTP_PATCH
+          .equals(method)) {
+            body = RequestBody.create(null, new byte[0]);
+        }
+
+        return builder.method(method, body).build();
+    }
+
+    private static class TimingEventListenerFactory implements EventListener.Factory {
+
+        private final EventListener.Factory delegate;
+
+        TimingEventListenerFactory(EventListener.Factory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public EventListener create(Call call) {
+            EventListener listener = delegate.create(call);
+            Object tag = call.request().tag();
+            return tag instanceof HTTPTimings ? new TimingEventListener(listener, (HTTPTimings) tag) : listener;
+        }
+    }
+
+    private static class TimingEventListener extends EventListener {
+
+        private final EventListener delegate;
+        private final HTTPTimings   timings;
+
+        private long dnsStart;
+        private long connectStart;
+        private long secureConnectStart;
+        private long requestStart;
+        private long requestEnd;
+        private long responseBodyStart;
+
+        TimingEventListener(EventListener delegate, HTTPTimings timings) {
+            this.delegate = delegate;
+            this.timings = timings;
+        }
+
+        private static long now() {
+            return System.nanoTime();
+        }
+
+        private static long since(long start) {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+
+        @Override
+        public void callStart(Call call) {
+            delegate.callStart(call);
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            dnsStart = now();
+            delegate.dnsStart(call, domainName);
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            timings.dnsMs = since(dnsStart);
+            delegate.dnsEnd(call, domainName, inetAddressList);
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectStart = now();
+            delegate.connectStart(call, inetSocketAddress, proxy);
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            secureConnectStart = now();
+            timings.connectMs = since(connectStart);
+            delegate.secureConnectStart(call);
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            timings.tlsMs = since(secureConnectStart);
+            delegate.secureConnectEnd(call, handshake);
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            if (secureConnectStart == 0) {
+                timings.connectMs = since(connectStart);
+            }
+            delegate.connectEnd(call, inetSocketAddress, proxy, protocol);
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol,
+                                  IOException ioe) {
+            delegate.connectFailed(call, inetSocketAddress, proxy, protocol, ioe);
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            if (connectStart == 0) {
+                // A pooled connection was reused
+                timings.dnsMs = 0;
+                timings.connectMs = 0;
+                timings.tlsMs = 0;
+            }
+            delegate.connectionAcquired(call, connection);
+        }
+
+        @Override
+        public void connectionReleased(Call call, Connection connection) {
+            delegate.connectionReleased(call, connection);
+        }
+
+        @Override
+        public void requestHeadersStart(Call call) {
+            requestStart = now();
+            delegate.requestHeadersStart(call);
+        }
+
+        @Override
+        public void requestHeadersEnd(Call call, Request request) {
+            requestEnd = now();
+            timings.requestBytes = 0;
+            delegate.requestHeadersEnd(call, request);
+        }
+
+        @Override
+        public void requestBodyStart(Call call) {
+            delegate.requestBodyStart(call);
+        }
+
+        @Override
+        public void requestBodyEnd(Call call, long byteCount) {
+            requestEnd = now();
+            timings.requestBytes = byteCount;
+            delegate.requestBodyEnd(call, byteCount);
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            long responseStart = now();
+            timings.requestWriteMs = TimeUnit.NANOSECONDS.toMillis(requestEnd - requestStart);
+            timings.timeToFirstByteMs = TimeUnit.NANOSECONDS.toMillis(responseStart - requestEnd);
+            delegate.responseHeadersStart(call);
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            delegate.responseHeadersEnd(call, response);
+        }
+
+        @Override
+        public void responseBodyStart(Call call) {
+            responseBodyStart = now();
+            delegate.responseBodyStart(call);
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            timings.bodyReadMs = since(responseBodyStart);
+            timings.responseBytes = byteCount;
+            delegate.responseBodyEnd(call, byteCount);
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            delegate.callEnd(call);
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            delegate.callFailed(call, ioe);
+        }
+    }
+}
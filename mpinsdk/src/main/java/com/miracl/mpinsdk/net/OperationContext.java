@@ -0,0 +1,237 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.net;
+
+
+import android.os.SystemClock;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * The context of a SDK operation executed by the current thread. The context carries the time budget of the operation,
+ * which is shared by all HTTP requests the operation makes. Each request is given at most the remaining budget for
+ * connecting, sending the request and reading the response. An operation can also be {@link #cancel() canceled}, which
+ * aborts its request in progress and fails its further requests.
+ */
+public final class OperationContext {
+
+    private static final ThreadLocal<OperationContext> CURRENT = new ThreadLocal<>();
+
+    private final String           name;
+    private final long             deadline;
+    private final OperationContext parent;
+
+    private volatile boolean deadlineExceeded;
+    private volatile boolean canceled;
+
+    // The connection and the thread of the request in progress and the contexts forked from this one, guarded by this
+    private Closeable              connection;
+    private Thread                 requestThread;
+    private List<OperationContext> children;
+
+    private OperationContext(String name, long deadline, OperationContext parent) {
+        this.name = name;
+        this.deadline = deadline;
+        this.parent = parent;
+    }
+
+    /**
+     * Start an operation on the current thread. Each operation should be ended with {@link #end()} on the same thread.
+     *
+     * @param name
+     *   The name of the operation, used to attribute its requests in the {@link HTTPEvent HTTP events}
+     * @param budgetMs
+     *   The total time budget of the operation in milliseconds or <code>0</code> for an operation without a deadline
+     */
+    public static OperationContext begin(String name, long budgetMs) {
+        if (budgetMs < 0) {
+            throw new IllegalArgumentException();
+        }
+        OperationContext context = new OperationContext(name,
+          budgetMs > 0 ? SystemClock.elapsedRealtime() + budgetMs : Long.MAX_VALUE, null);
+        CURRENT.set(context);
+        return context;
+    }
+
+    /**
+     * @return The context of the operation executed by the current thread or <code>null</code> if there is none
+     */
+    public static OperationContext current() {
+        return CURRENT.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void end() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * @return The remaining time budget of the operation in milliseconds, <code>Long.MAX_VALUE</code> if the operation
+     * has no deadline
+     */
+    public long getRemainingMs() {
+        if (deadline == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, deadline - SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * @return Whether a request of the operation failed because the operation ran out of its time budget
+     */
+    public boolean isDeadlineExceeded() {
+        return deadlineExceeded;
+    }
+
+    void onDeadlineExceeded() {
+        deadlineExceeded = true;
+    }
+
+    /**
+     * Cancel the operation. The request in progress is aborted by closing its connection and interrupting the waits
+     * between its attempts, and the further requests of the operation fail without being sent. Can be called from any
+     * thread.
+     */
+    public void cancel() {
+        Closeable requestConnection;
+        List<OperationContext> forked;
+        synchronized (this) {
+            canceled = true;
+            requestConnection = connection;
+            connection = null;
+            if (requestThread != null) {
+                requestThread.interrupt();
+            }
+            forked = children;
+            children = null;
+        }
+        closeQuietly(requestConnection);
+        if (forked != null) {
+            for (OperationContext child : forked) {
+                child.cancel();
+            }
+        }
+    }
+
+    /**
+     * @return Whether the operation was canceled
+     */
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    /**
+     * Set the connection of the request the operation is executing, so that the request is aborted if the operation is
+     * canceled. Transports should set the connection when it's opened and clear it when the request completes. A
+     * connection set after the operation is canceled is closed right away.
+     *
+     * @param connection
+     *   The connection, closing which aborts the request, or <code>null</code> to clear it
+     */
+    public void setConnection(Closeable connection) {
+        synchronized (this) {
+            if (!canceled) {
+                this.connection = connection;
+                return;
+            }
+        }
+        closeQuietly(connection);
+    }
+
+    /**
+     * Create the context of a part of an operation that is executed on another thread, such as a hedged attempt of a
+     * request. The forked context shares the deadline of the operation and is canceled with it, but it can also be
+     * canceled on its own. It should be {@link #close() closed} when the part completes.
+     *
+     * @param parent
+     *   The context of the operation or <code>null</code> if the part is not executed within an operation
+     */
+    static OperationContext fork(OperationContext parent) {
+        if (parent == null) {
+            return new OperationContext(null, Long.MAX_VALUE, null);
+        }
+        OperationContext child = new OperationContext(parent.name, parent.deadline, parent);
+        synchronized (parent) {
+            if (!parent.canceled) {
+                if (parent.children == null) {
+                    parent.children = new ArrayList<>();
+                }
+                parent.children.add(child);
+                return child;
+            }
+        }
+        child.cancel();
+        return child;
+    }
+
+    /**
+     * Make this context the current one of the calling thread until {@link #end()} is called.
+     */
+    void attach() {
+        CURRENT.set(this);
+    }
+
+    /**
+     * Cancel a forked context, aborting its request if it's still in progress, and detach it from its operation.
+     */
+    void close() {
+        cancel();
+        if (parent != null) {
+            synchronized (parent) {
+                if (parent.children != null) {
+                    parent.children.remove(this);
+                }
+            }
+        }
+    }
+
+    void onRequestStarted() {
+        synchronized (this) {
+            requestThread = Thread.currentThread();
+        }
+    }
+
+    void onRequestFinished() {
+        synchronized (this) {
+            requestThread = null;
+            connection = null;
+        }
+        // Clear an interrupt made by the cancellation, as it was meant only for the request
+        Thread.interrupted();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,502 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.net;
+
+
+import com.miracl.mpinsdk.util.Hex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Cache of the responses to the <code>GET</code> requests made by the SDK, kept in memory and on disk. The cache honours
+ * the <code>Cache-Control</code> directives of the responses: a fresh response is returned without a request, and a
+ * stale one is revalidated with a conditional request using its <code>ETag</code> or <code>Last-Modified</code> header.
+ * Both the memory and the disk cache are bounded and evict their least recently used responses. The disk cache manages
+ * only the files it writes, which are named by the hex encoded SHA-256 of their keys, and leaves any other files in its
+ * directory alone.
+ * <p>
+ * The responses are cached per URL and request headers, so a response is never served to a request with a different CID
+ * or different custom headers. Requests with an <code>Authorization</code> header and responses with
+ * <code>Vary: *</code> are not cached.
+ */
+public class ResponseCache {
+
+    public static final long DEFAULT_MAX_MEMORY_SIZE = 256 * 1024;
+    public static final long DEFAULT_MAX_DISK_SIZE   = 2 * 1024 * 1024;
+
+    private static final int     DISK_FORMAT_VERSION = 1;
+    private static final int     KEY_LENGTH          = 64;
+    private static final int     HTTP_OK             = 200;
+    private static final int     HTTP_NOT_MODIFIED   = 304;
+    private static final Charset UTF_8               = Charset.forName("UTF-8");
+
+    private static final String AUTHORIZATION_HEADER     = "Authorization";
+    private static final String CACHE_CONTROL_HEADER     = "Cache-Control";
+    private static final String ETAG_HEADER              = "ETag";
+    private static final String LAST_MODIFIED_HEADER     = "Last-Modified";
+    private static final String VARY_HEADER              = "Vary";
+    private static final String CONTENT_LENGTH_HEADER    = "Content-Length";
+    private static final String IF_NONE_MATCH_HEADER     = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE_HEADER = "If-Modified-Since";
+
+    private final File directory;
+    private final long maxMemorySize;
+    private final long maxDiskSize;
+
+    private final LinkedHashMap<String, Entry> memoryEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long>  diskEntries   = new LinkedHashMap<>(16, 0.75f, true);
+    private       long                         memorySize;
+    private       long                         diskSize;
+
+    private final AtomicLong hitCount            = new AtomicLong();
+    private final AtomicLong conditionalHitCount = new AtomicLong();
+    private final AtomicLong missCount           = new AtomicLong();
+
+    /**
+     * Create a cache with the default size limits.
+     *
+     * @param directory
+     *   A private directory of the application for the cached responses, for example a sub-directory of
+     *   <code>Context.getCacheDir()</code>. Can be <code>null</code> for a memory only cache.
+     */
+    public ResponseCache(File directory) {
+        this(directory, DEFAULT_MAX_MEMORY_SIZE, DEFAULT_MAX_DISK_SIZE);
+    }
+
+    /**
+     * @param directory
+     *   A private directory of the application for the cached responses. Can be <code>null</code> for a memory only cache.
+     * @param maxMemorySize
+     *   The maximum size in bytes of the responses kept in memory
+     * @param maxDiskSize
+     *   The maximum size in bytes of the responses kept on disk
+     */
+    public ResponseCache(File directory, long maxMemorySize, long maxDiskSize) {
+        if (maxMemorySize < 0 || maxDiskSize < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.directory = directory;
+        this.maxMemorySize = maxMemorySize;
+        this.maxDiskSize = directory != null ? maxDiskSize : 0;
+        loadDiskIndex();
+    }
+
+    /**
+     * @return The number of requests served from the cache without contacting the backend
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return The number of requests for which the backend confirmed that the cached response is still valid
+     */
+    public long getConditionalHitCount() {
+        return conditionalHitCount.get();
+    }
+
+    /**
+     * @return The number of cacheable requests that had to be fully downloaded
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Remove all responses from the cache.
+     */
+    public synchronized void clear() {
+        memoryEntries.clear();
+        memorySize = 0;
+        for (String key : diskEntries.keySet()) {
+            // noinspection ResultOfMethodCallIgnored
+            getFile(key).delete();
+        }
+        diskEntries.clear();
+        diskSize = 0;
+    }
+
+    HTTPResponse execute(HTTPRequest request, IHTTPTransport transport) throws IOException {
+        if (!IHTTPRequest.HTTP_GET.equals(request.getMethod())
+          || HTTPResponse.getHeader(request.getHeaders(), AUTHORIZATION_HEADER) != null) {
+            return transport.execute(request);
+        }
+
+        String key = getKey(request);
+        Entry cached = get(key);
+        long now = System.currentTimeMillis();
+        if (cached != null && cached.isFresh(now)) {
+            hitCount.incrementAndGet();
+            HTTPResponse hit = cached.toResponse();
+            hit.setTimings(HTTPTimings.fromCache());
+            return hit;
+        }
+
+        HTTPRequest sent = request;
+        if (cached != null && cached.hasValidators()) {
+            Map<String, String> headers = new HashMap<>(request.getHeaders());
+            if (cached.etag != null) {
+                headers.put(IF_NONE_MATCH_HEADER, cached.etag);
+            }
+            if (cached.lastModified != null) {
+                headers.put(IF_MODIFIED_SINCE_HEADER, cached.lastModified);
+            }
+            sent = new HTTPRequest(request.getMethod(), request.getUrl(), headers, request.getBody(), request.getTimeout());
+        }
+
+        HTTPResponse response = transport.execute(sent);
+        if (cached != null && response.getStatusCode() == HTTP_NOT_MODIFIED) {
+            conditionalHitCount.incrementAndGet();
+            Map<String, String> headers = new HashMap<>(cached.headers);
+            headers.putAll(response.getHeaders());
+            Entry revalidated = new Entry(cached.url, cached.statusCode, headers, cached.body, now);
+            put(key, revalidated);
+            HTTPResponse hit = revalidated.toResponse();
+            hit.setTimings(response.getTimings());
+            return hit;
+        }
+
+        missCount.incrementAndGet();
+        ByteBuffer body = response.getBody();
+        if (response.getStatusCode() == HTTP_OK && body != null) {
+            Entry entry = new Entry(request.getUrl(), response.getStatusCode(), response.getHeaders(), body, now);
+            if (entry.isStorable()) {
+                put(key, entry);
+            } else {
+                remove(key);
+            }
+        }
+        return response;
+    }
+
+    private synchronized Entry get(String key) {
+        Entry entry = memoryEntries.get(key);
+        if (entry != null || !diskEntries.containsKey(key)) {
+            return entry;
+        }
+
+        entry = readEntry(getFile(key));
+        if (entry == null) {
+            removeFromDisk(key);
+            return null;
+        }
+        putInMemory(key, entry);
+        return entry;
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        putInMemory(key, entry);
+
+        removeFromDisk(key);
+        if (entry.size() > maxDiskSize) {
+            return;
+        }
+        File file = getFile(key);
+        if (writeEntry(file, entry)) {
+            diskEntries.put(key, file.length());
+            diskSize += file.length();
+            Iterator<Map.Entry<String, Long>> it = diskEntries.entrySet().iterator();
+            while (diskSize > maxDiskSize && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                // noinspection ResultOfMethodCallIgnored
+                getFile(eldest.getKey()).delete();
+                diskSize -= eldest.getValue();
+                it.remove();
+            }
+        }
+    }
+
+    private synchronized void remove(String key) {
+        Entry entry = memoryEntries.remove(key);
+        if (entry != null) {
+            memorySize -= entry.size();
+        }
+        removeFromDisk(key);
+    }
+
+    private void putInMemory(String key, Entry entry) {
+        Entry previous = memoryEntries.remove(key);
+        if (previous != null) {
+            memorySize -= previous.size();
+        }
+        if (entry.size() > maxMemorySize) {
+            return;
+        }
+        memoryEntries.put(key, entry);
+        memorySize += entry.size();
+        Iterator<Entry> it = memoryEntries.values().iterator();
+        while (memorySize > maxMemorySize && it.hasNext()) {
+            memorySize -= it.next().size();
+            it.remove();
+        }
+    }
+
+    private void removeFromDisk(String key) {
+        Long size = diskEntries.remove(key);
+        if (size != null) {
+            diskSize -= size;
+            // noinspection ResultOfMethodCallIgnored
+            getFile(key).delete();
+        }
+    }
+
+    private void loadDiskIndex() {
+        if (directory == null) {
+            return;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        // Restore the least recently used order from the last access times
+        Arrays.sort(files, new Comparator<File>() {
+
+            @Override
+            public int compare(File lhs, File rhs) {
+                long diff = lhs.lastModified() - rhs.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        for (File file : files) {
+            // The directory may be shared with other files, only the entries written by the cache are managed by it
+            if (file.isFile() && isKey(file.getName())) {
+                diskEntries.put(file.getName(), file.length());
+                diskSize += file.length();
+            }
+        }
+    }
+
+    private static boolean isKey(String name) {
+        if (name.length() != KEY_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private File getFile(String key) {
+        return new File(directory, key);
+    }
+
+    private boolean writeEntry(File file, Entry entry) {
+        DataOutputStream dos = null;
+        try {
+            dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            dos.writeInt(DISK_FORMAT_VERSION);
+            dos.writeUTF(entry.url);
+            dos.writeInt(entry.statusCode);
+            dos.writeLong(entry.storedAt);
+            dos.writeInt(entry.headers.size());
+            for (Map.Entry<String, String> header : entry.headers.entrySet()) {
+                dos.writeUTF(header.getKey());
+                dos.writeUTF(header.getValue());
+            }
+            ByteBuffer body = entry.body.duplicate();
+            byte[] bytes = new byte[body.remaining()];
+            body.get(bytes);
+            dos.writeInt(bytes.length);
+            dos.write(bytes);
+            dos.close();
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            if (dos != null) {
+                try {
+                    dos.close();
+                } catch (IOException ignored) {
+                }
+            }
+            // noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return false;
+        }
+    }
+
+    private Entry readEntry(File file) {
+        DataInputStream dis = null;
+        try {
+            dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (dis.readInt() != DISK_FORMAT_VERSION) {
+                return null;
+            }
+            String url = dis.readUTF();
+            int statusCode = dis.readInt();
+            long storedAt = dis.readLong();
+            int headerCount = dis.readInt();
+            Map<String, String> headers = new HashMap<>();
+            for (int i = 0; i < headerCount; i++) {
+                headers.put(dis.readUTF(), dis.readUTF());
+            }
+            byte[] bytes = new byte[dis.readInt()];
+            dis.readFully(bytes);
+
+            // Keep the access order across application launches
+            // noinspection ResultOfMethodCallIgnored
+            file.setLastModified(System.currentTimeMillis());
+
+            ByteBuffer body = ByteBuffer.allocateDirect(bytes.length);
+            body.put(bytes);
+            body.flip();
+            return new Entry(url, statusCode, headers, body, storedAt);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            if (dis != null) {
+                try {
+                    dis.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * The key covers all request headers, so the headers named in the <code>Vary</code> of a cached response always match
+     * the request. <code>Accept-Encoding</code> is left out, as the responses are stored decoded.
+     */
+    private static String getKey(HTTPRequest request) {
+        Map<String, String> headers = new TreeMap<>();
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            if (!Compression.ACCEPT_ENCODING_HEADER.equalsIgnoreCase(header.getKey())) {
+                headers.put(header.getKey().toLowerCase(Locale.US), String.valueOf(header.getValue()));
+            }
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.getUrl().getBytes(UTF_8));
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                digest.update((byte) 0);
+                digest.update(header.getKey().getBytes(UTF_8));
+                digest.update((byte) 0);
+                digest.update(header.getValue().getBytes(UTF_8));
+            }
+            return Hex.encode(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Entry {
+
+        final String              url;
+        final int                 statusCode;
+        final Map<String, String> headers;
+        final ByteBuffer          body;
+        final long                storedAt;
+        final String              etag;
+        final String              lastModified;
+
+        private boolean noStore;
+        private boolean noCache;
+        private long    maxAgeMs = -1;
+
+        Entry(String url, int statusCode, Map<String, String> headers, ByteBuffer body, long storedAt) {
+            this.url = url;
+            this.statusCode = statusCode;
+            this.headers = new HashMap<>();
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                // The body is stored decoded and its length is known from the buffer
+                if (!Compression.CONTENT_ENCODING_HEADER.equalsIgnoreCase(header.getKey())
+                  && !CONTENT_LENGTH_HEADER.equalsIgnoreCase(header.getKey())) {
+                    this.headers.put(header.getKey(), header.getValue());
+                }
+            }
+            this.body = body;
+            this.storedAt = storedAt;
+            this.etag = HTTPResponse.getHeader(headers, ETAG_HEADER);
+            this.lastModified = HTTPResponse.getHeader(headers, LAST_MODIFIED_HEADER);
+            parseCacheControl(HTTPResponse.getHeader(headers, CACHE_CONTROL_HEADER));
+        }
+
+        private void parseCacheControl(String cacheControl) {
+            if (cacheControl == null) {
+                return;
+            }
+            for (String directive : cacheControl.split(",")) {
+                directive = directive.trim().toLowerCase(Locale.US);
+                if (directive.equals("no-store")) {
+                    noStore = true;
+                } else if (directive.equals("no-cache")) {
+                    noCache = true;
+                } else if (directive.startsWith("max-age=")) {
+                    try {
+                        maxAgeMs = Long.parseLong(directive.substring("max-age=".length())) * 1000;
+                    } catch (NumberFormatException e) {
+                        noCache = true;
+                    }
+                }
+            }
+        }
+
+        boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+
+        boolean isFresh(long now) {
+            return !noCache && maxAgeMs >= 0 && now >= storedAt && now - storedAt < maxAgeMs;
+        }
+
+        boolean isStorable() {
+            // The key already covers the request headers, only a response that varies on more than them isn't reusable
+            String vary = HTTPResponse.getHeader(headers, VARY_HEADER);
+            boolean varies = vary != null && vary.trim().equals("*");
+            return !noStore && !varies && (maxAgeMs > 0 || hasValidators());
+        }
+
+        long size() {
+            return body.remaining();
+        }
+
+        HTTPResponse toResponse() {
+            // The buffer is shared by all the responses created from the entry, they only expose read-only views of it
+            return new HTTPResponse(statusCode, headers, body.duplicate());
+        }
+    }
+}
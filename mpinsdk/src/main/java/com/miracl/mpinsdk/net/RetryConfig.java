@@ -0,0 +1,244 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.net;
+
+
+import android.net.Uri;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Configuration of the retries of the failed requests made by the SDK. Policies are set per HTTP method and can be
+ * overridden for endpoints by path prefix. By default the idempotent methods are retried with {@link #DEFAULT_POLICY}
+ * and the other ones are not retried.
+ * <p>
+ * Retries are limited by a budget shared by all requests. Each failed attempt takes a token from the budget and each
+ * successful one returns a fraction of a token. Retries are made only while more than half of the tokens are available,
+ * so retries stop when most requests fail, instead of multiplying the load on a struggling backend.
+ */
+public class RetryConfig {
+
+    public static final RetryPolicy DEFAULT_POLICY = new RetryPolicy(3, 200, 2000);
+
+    public static final int    DEFAULT_MAX_TOKENS  = 10;
+    public static final double DEFAULT_TOKEN_RATIO = 0.1;
+
+    private static final String[] IDEMPOTENT_METHODS = {
+      IHTTPRequest.HTTP_GET, IHTTPRequest.HTTP_HEAD, IHTTPRequest.HTTP_OPTIONS, IHTTPRequest.HTTP_PUT,
+      IHTTPRequest.HTTP_DELETE
+    };
+
+    private static final int LATENCY_WINDOW_SIZE   = 100;
+    private static final int MIN_LATENCY_SAMPLES   = 20;
+    private static final int MAX_LATENCY_ENDPOINTS = 32;
+
+    private final Map<String, RetryPolicy>              methodPolicies   = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, RetryPolicy>> endpointPolicies = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, LatencyWindow>  latencies        = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final int    maxTokens;
+    private final double tokenRatio;
+    private       double tokens;
+
+    private final AtomicLong retryCount          = new AtomicLong();
+    private final AtomicLong hedgeCount          = new AtomicLong();
+    private final AtomicLong budgetExceededCount = new AtomicLong();
+
+    public RetryConfig() {
+        this(DEFAULT_MAX_TOKENS, DEFAULT_TOKEN_RATIO);
+    }
+
+    /**
+     * @param maxTokens
+     *   The size of the retry budget
+     * @param tokenRatio
+     *   The fraction of a token returned to the budget by each successful attempt
+     */
+    public RetryConfig(int maxTokens, double tokenRatio) {
+        if (maxTokens <= 0 || tokenRatio <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.maxTokens = maxTokens;
+        this.tokenRatio = tokenRatio;
+        this.tokens = maxTokens;
+        for (String method : IDEMPOTENT_METHODS) {
+            methodPolicies.put(method, DEFAULT_POLICY);
+        }
+    }
+
+    /**
+     * Set the policy for the requests with a HTTP method.
+     *
+     * @param method
+     *   The HTTP method, for example <code>GET</code>
+     * @param policy
+     *   The retry policy
+     */
+    public void setPolicy(String method, RetryPolicy policy) {
+        methodPolicies.put(method.toUpperCase(Locale.US), policy);
+    }
+
+    /**
+     * Set the policy for the requests with a HTTP method to an endpoint. Endpoint policies take precedence over the method
+     * ones, and the policy with the longest matching path prefix is used.
+     *
+     * @param method
+     *   The HTTP method, for example <code>GET</code>
+     * @param pathPrefix
+     *   The prefix of the endpoint path, for example <code>/rps/v2/</code>
+     * @param policy
+     *   The retry policy
+     */
+    public void setPolicy(String method, String pathPrefix, RetryPolicy policy) {
+        String key = method.toUpperCase(Locale.US);
+        Map<String, RetryPolicy> policies = endpointPolicies.get(key);
+        if (policies == null) {
+            policies = new ConcurrentHashMap<>();
+            endpointPolicies.put(key, policies);
+        }
+        policies.put(pathPrefix, policy);
+    }
+
+    /**
+     * @return The number of retries made
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * @return The number of hedged requests made
+     */
+    public long getHedgeCount() {
+        return hedgeCount.get();
+    }
+
+    /**
+     * @return The number of retries that were not made because the retry budget was exhausted
+     */
+    public long getBudgetExceededCount() {
+        return budgetExceededCount.get();
+    }
+
+    RetryPolicy getPolicy(String method, String url) {
+        RetryPolicy policy = null;
+        Map<String, RetryPolicy> policies = endpointPolicies.get(method);
+        if (policies != null) {
+            String path = Uri.parse(url).getPath();
+            int matchLength = -1;
+            if (path != null) {
+                for (Map.Entry<String, RetryPolicy> endpoint : policies.entrySet()) {
+                    String prefix = endpoint.getKey();
+                    if (path.startsWith(prefix) && prefix.length() > matchLength) {
+                        policy = endpoint.getValue();
+                        matchLength = prefix.length();
+                    }
+                }
+            }
+        }
+        if (policy == null) {
+            policy = methodPolicies.get(method);
+        }
+        return policy != null ? policy : RetryPolicy.NONE;
+    }
+
+    synchronized void onAttemptSucceeded() {
+        tokens = Math.min(maxTokens, tokens + tokenRatio);
+    }
+
+    synchronized void onAttemptFailed() {
+        tokens = Math.max(0, tokens - 1);
+    }
+
+    synchronized boolean canRetry() {
+        if (tokens > maxTokens / 2.0) {
+            retryCount.incrementAndGet();
+            return true;
+        }
+        budgetExceededCount.incrementAndGet();
+        return false;
+    }
+
+    void onHedge() {
+        hedgeCount.incrementAndGet();
+    }
+
+    /**
+     * @return The key by which the latencies of the requests to an endpoint are observed, made of the HTTP method and the
+     * host and path of the URL
+     */
+    static String getEndpoint(String method, String url) {
+        Uri uri = Uri.parse(url);
+        return method + " " + uri.getAuthority() + uri.getPath();
+    }
+
+    /**
+     * @return The 95th percentile of the observed latencies of the requests to the endpoint, or the configured hedge delay
+     * of the policy until enough requests are observed
+     */
+    long getHedgeDelayMs(RetryPolicy policy, String endpoint) {
+        synchronized (latencies) {
+            LatencyWindow window = latencies.get(endpoint);
+            return window != null && window.count >= MIN_LATENCY_SAMPLES ? window.getP95() : policy.getHedgeDelayMs();
+        }
+    }
+
+    void onLatency(String endpoint, long latencyMs) {
+        synchronized (latencies) {
+            LatencyWindow window = latencies.get(endpoint);
+            if (window == null) {
+                window = new LatencyWindow();
+                latencies.put(endpoint, window);
+                // Keep the windows of the most recently used endpoints only
+                Iterator<LatencyWindow> it = latencies.values().iterator();
+                while (latencies.size() > MAX_LATENCY_ENDPOINTS && it.hasNext()) {
+                    it.next();
+                    it.remove();
+                }
+            }
+            window.add(latencyMs);
+        }
+    }
+
+    private static class LatencyWindow {
+
+        final long[] samples = new long[LATENCY_WINDOW_SIZE];
+        int count;
+        int next;
+
+        void add(long latencyMs) {
+            samples[next] = latencyMs;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        long getP95() {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[Math.min(count - 1, (int) Math.ceil(count * 0.95) - 1)];
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.net;
+
+
+import java.util.Random;
+
+
+/**
+ * Policy for retrying the failed requests to an endpoint. Retries are delayed with exponential backoff with full jitter.
+ * Optionally a hedged request is made: when an attempt takes longer than the hedge delay, a second one is started and the
+ * response that arrives first is used.
+ * <p>
+ * Only requests that are safe to repeat should be retried or hedged.
+ *
+ * @see RetryConfig
+ */
+public class RetryPolicy {
+
+    /**
+     * Policy that makes a single attempt.
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    private final int  maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final long hedgeDelayMs;
+
+    /**
+     * @param maxAttempts
+     *   The maximum number of attempts, including the first one
+     * @param initialBackoffMs
+     *   The upper bound of the delay before the first retry. The bound is doubled for each following retry.
+     * @param maxBackoffMs
+     *   The maximum upper bound of the delay before a retry
+     */
+    public RetryPolicy(int maxAttempts, long initialBackoffMs, long maxBackoffMs) {
+        this(maxAttempts, initialBackoffMs, maxBackoffMs, 0);
+    }
+
+    /**
+     * @param maxAttempts
+     *   The maximum number of attempts, including the first one
+     * @param initialBackoffMs
+     *   The upper bound of the delay before the first retry. The bound is doubled for each following retry.
+     * @param maxBackoffMs
+     *   The maximum upper bound of the delay before a retry
+     * @param hedgeDelayMs
+     *   The time after which a hedged request is started, until enough responses are observed to use their 95th
+     *   percentile latency instead, or <code>0</code> to disable hedging
+     */
+    public RetryPolicy(int maxAttempts, long initialBackoffMs, long maxBackoffMs, long hedgeDelayMs) {
+        if (maxAttempts < 1 || initialBackoffMs < 0 || maxBackoffMs < initialBackoffMs || hedgeDelayMs < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.hedgeDelayMs = hedgeDelayMs;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getInitialBackoffMs() {
+        return initialBackoffMs;
+    }
+
+    public long getMaxBackoffMs() {
+        return maxBackoffMs;
+    }
+
+    public long getHedgeDelayMs() {
+        return hedgeDelayMs;
+    }
+
+    boolean isHedged() {
+        return hedgeDelayMs > 0;
+    }
+
+    /**
+     * @param retry
+     *   The number of the retry, starting from 1
+     * @return A random delay between 0 and the backoff bound for the retry
+     */
+    long getBackoffMs(int retry, Random random) {
+        long bound = initialBackoffMs;
+        for (int i = 1; i < retry && bound < maxBackoffMs; i++) {
+            bound *= 2;
+        }
+        bound = Math.min(bound, maxBackoffMs);
+        return bound > 0 ? (long) (random.nextDouble() * bound) : 0;
+    }
+}
@@ -0,0 +1,219 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.net;
+
+
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Transport that retries and hedges the requests to another transport according to a {@link RetryConfig}.
+ */
+class RetryingTransport implements IHTTPTransport {
+
+    private static final int HTTP_BAD_GATEWAY     = 502;
+    private static final int HTTP_UNAVAILABLE     = 503;
+    private static final int HTTP_GATEWAY_TIMEOUT = 504;
+
+    private static final ExecutorService hedgeExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "SDK Hedged Request Thread");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final RetryConfig    config;
+    private final IHTTPTransport transport;
+    private final Random         random = new Random();
+
+    RetryingTransport(RetryConfig config, IHTTPTransport transport) {
+        this.config = config;
+        this.transport = transport;
+    }
+
+    private static boolean isRetryable(int statusCode) {
+        return statusCode == HTTP_BAD_GATEWAY || statusCode == HTTP_UNAVAILABLE || statusCode == HTTP_GATEWAY_TIMEOUT;
+    }
+
+    @Override
+    public HTTPResponse execute(HTTPRequest request) throws IOException {
+        RetryPolicy policy = config.getPolicy(request.getMethod(), request.getUrl());
+        if (policy.getMaxAttempts() == 1 && !policy.isHedged()) {
+            return transport.execute(request);
+        }
+
+        String endpoint = RetryConfig.getEndpoint(request.getMethod(), request.getUrl());
+        OperationContext operation = OperationContext.current();
+        HTTPRequest attemptRequest = request;
+        for (int attempt = 1; ; attempt++) {
+            HTTPResponse response = null;
+            IOException error = null;
+            try {
+                response = policy.isHedged()
+                  ? executeHedged(policy, endpoint, attemptRequest, operation)
+                  : executeTimed(endpoint, attemptRequest);
+            } catch (IOException e) {
+                error = e;
+            }
+
+            if (error == null && !isRetryable(response.getStatusCode())) {
+                config.onAttemptSucceeded();
+                return response;
+            }
+            config.onAttemptFailed();
+
+            if (attempt >= policy.getMaxAttempts() || !config.canRetry()
+              || (operation != null && operation.isCanceled())) {
+                return returnOrThrow(response, error);
+            }
+
+            long backoffMs = policy.getBackoffMs(attempt, random);
+            long remainingMs = operation != null ? operation.getRemainingMs() : Long.MAX_VALUE;
+            if (remainingMs <= backoffMs) {
+                // Leave the rest of the operation budget to the core instead of failing on the deadline
+                return returnOrThrow(response, error);
+            }
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return returnOrThrow(response, error);
+            }
+
+            remainingMs -= backoffMs;
+            attemptRequest = new HTTPRequest(request.getMethod(), request.getUrl(), request.getHeaders(), request.getBody(),
+              (int) Math.min(request.getTimeout(), remainingMs));
+        }
+    }
+
+    @Override
+    public void prewarm(String url) throws IOException {
+        transport.prewarm(url);
+    }
+
+    private HTTPResponse returnOrThrow(HTTPResponse response, IOException error) throws IOException {
+        if (error != null) {
+            throw error;
+        }
+        return response;
+    }
+
+    private HTTPResponse executeTimed(String endpoint, HTTPRequest request) throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        HTTPResponse response = transport.execute(request);
+        config.onLatency(endpoint, SystemClock.elapsedRealtime() - start);
+        return response;
+    }
+
+    private HTTPResponse executeHedged(RetryPolicy policy, String endpoint, HTTPRequest request,
+                                       OperationContext operation) throws IOException {
+        CompletionService<HTTPResponse> attempts = new ExecutorCompletionService<>(hedgeExecutor);
+        // Each attempt runs in a context forked from the operation, so that canceling the operation aborts both of them
+        // and the attempt that loses can be aborted on its own
+        HedgedAttempt first = new HedgedAttempt(endpoint, request, operation);
+        HedgedAttempt second = null;
+        try {
+            attempts.submit(first);
+            Future<HTTPResponse> firstResult = attempts.poll(config.getHedgeDelayMs(policy, endpoint),
+              TimeUnit.MILLISECONDS);
+            if (firstResult != null) {
+                return getResult(firstResult);
+            }
+
+            config.onHedge();
+            second = new HedgedAttempt(endpoint, request, operation);
+            attempts.submit(second);
+            IOException error = null;
+            for (int pending = 2; pending > 0; pending--) {
+                try {
+                    HTTPResponse response = getResult(attempts.take());
+                    if (!isRetryable(response.getStatusCode()) || pending == 1) {
+                        return response;
+                    }
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+            throw error;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            // Aborts the attempt that is still in progress, the completed ones have already released their connections
+            first.context.close();
+            if (second != null) {
+                second.context.close();
+            }
+        }
+    }
+
+    private final class HedgedAttempt implements Callable<HTTPResponse> {
+
+        final String           endpoint;
+        final HTTPRequest      request;
+        final OperationContext context;
+
+        HedgedAttempt(String endpoint, HTTPRequest request, OperationContext operation) {
+            this.endpoint = endpoint;
+            this.request = request;
+            this.context = OperationContext.fork(operation);
+        }
+
+        @Override
+        public HTTPResponse call() throws IOException {
+            if (context.isCanceled()) {
+                throw new InterruptedIOException();
+            }
+            context.attach();
+            try {
+                return executeTimed(endpoint, request);
+            } finally {
+                context.end();
+            }
+        }
+    }
+
+    private HTTPResponse getResult(Future<HTTPResponse> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
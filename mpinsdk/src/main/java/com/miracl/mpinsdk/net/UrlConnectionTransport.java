@@ -0,0 +1,221 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.net;
+
+
+import android.os.SystemClock;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * The default {@link IHTTPTransport}, based on {@link HttpURLConnection}.
+ */
+public class UrlConnectionTransport implements IHTTPTransport {
+
+    private static volatile boolean connectionReuse;
+
+    private static void discard(InputStream is) throws IOException {
+        try {
+            byte[] buf = new byte[512];
+            while (is.read(buf) != -1) {
+                // Consume the body so the connection can be returned to the pool
+            }
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Keep the connections of completed requests open, so that the platform's keep-alive pool reuses them for the
+     * following requests to the same host. The size of that pool and the eviction of its idle connections are managed by
+     * the platform and are not configured by the SDK.
+     *
+     * @param enabled
+     *   Whether to reuse the connections, or disconnect after every request
+     */
+    public static void setConnectionReuse(boolean enabled) {
+        connectionReuse = enabled;
+    }
+
+    @Override
+    public HTTPResponse execute(HTTPRequest request) throws IOException {
+        OperationContext operation = OperationContext.current();
+        HttpURLConnection connection = null;
+        OutputStream os = null;
+        boolean reusable = false;
+
+        try {
+            byte[] requestBody = request.getBody();
+            connection = getConnection(request.getUrl(), requestBody != null && requestBody.length > 0);
+            if (operation != null) {
+                final HttpURLConnection canceledConnection = connection;
+                operation.setConnection(new Closeable() {
+
+                    @Override
+                    public void close() {
+                        // Closes the socket, which fails the blocked read or write of the request
+                        canceledConnection.disconnect();
+                    }
+                });
+            }
+
+            connection.setRequestMethod(request.getMethod());
+            // HttpURLConnection has no write timeout, the request body is written to the socket buffer before the response
+            // is awaited with the read timeout
+            connection.setConnectTimeout(request.getTimeout());
+            connection.setReadTimeout(request.getTimeout());
+
+            // Set request properties
+            for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+
+            boolean hasBody = requestBody != null && requestBody.length > 0;
+            if (hasBody) {
+                connection.setFixedLengthStreamingMode(requestBody.length);
+            }
+
+            // Starts the query. HttpURLConnection does not expose the DNS lookup and the TLS handshake, so they are
+            // measured as part of the connect time.
+            HTTPTimings timings = new HTTPTimings();
+            long start = SystemClock.elapsedRealtime();
+            connection.connect();
+            long connected = SystemClock.elapsedRealtime();
+            timings.connectMs = connected - start;
+
+            // Set request body
+            if (hasBody) {
+                os = connection.getOutputStream();
+                os.write(requestBody);
+                os.close();
+            }
+            timings.requestBytes = hasBody ? requestBody.length : 0;
+
+            long written = SystemClock.elapsedRealtime();
+            timings.requestWriteMs = written - connected;
+
+            int statusCode;
+            try {
+                statusCode = connection.getResponseCode();
+            } catch (IOException e) {
+                statusCode = connection.getResponseCode();
+                if (statusCode != 401) {
+                    throw e;
+                }
+            }
+
+            long firstByte = SystemClock.elapsedRealtime();
+            timings.timeToFirstByteMs = firstByte - written;
+
+            Map<String, String> responseHeaders = getResponseHeaders(connection.getHeaderFields());
+
+            HTTPResponse response;
+            if (statusCode >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                InputStream errorStream = connection.getErrorStream();
+                if (errorStream != null) {
+                    discard(errorStream);
+                }
+                response = new HTTPResponse(statusCode, responseHeaders, (ByteBuffer) null);
+            } else {
+                response = HTTPResponse.fromStream(statusCode, responseHeaders, connection.getInputStream(),
+                  connection.getContentLength());
+                timings.responseBytes = response.getReceivedBytes();
+            }
+            timings.bodyReadMs = SystemClock.elapsedRealtime() - firstByte;
+            response.setTimings(timings);
+            reusable = true;
+
+            return response;
+        } finally {
+            if (operation != null) {
+                operation.setConnection(null);
+            }
+            if (os != null) {
+                os.close();
+            }
+            if (connection != null && (!reusable || !connectionReuse)) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Resolve the backend host and make a <code>HEAD</code> request to it. The connection is kept for the following
+     * requests only when {@link #setConnectionReuse connection reuse} is enabled, otherwise just the DNS and TLS session
+     * caches are warmed up.
+     */
+    @Override
+    public void prewarm(String url) throws IOException {
+        URL backendUrl = new URL(url);
+        InetAddress.getAllByName(backendUrl.getHost());
+
+        HttpURLConnection connection = (HttpURLConnection) backendUrl.openConnection();
+        boolean reusable = false;
+        try {
+            int timeout = IHTTPRequest.DEFAULT_TIMEOUT_SECONDS * 1000;
+            connection.setRequestMethod(IHTTPRequest.HTTP_HEAD);
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
+
+            InputStream is = connection.getResponseCode() >= HttpURLConnection.HTTP_BAD_REQUEST
+              ? connection.getErrorStream()
+              : connection.getInputStream();
+            if (is != null) {
+                discard(is);
+            }
+            reusable = true;
+        } finally {
+            if (!reusable || !connectionReuse) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private Map<String, String> getResponseHeaders(Map<String, List<String>> headers) {
+        Map<String, String> responseHeaders = new HashMap<>();
+
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            String key = entry.getKey();
+
+            if (key != null) {
+                responseHeaders.put(entry.getKey(), HTTPResponse.joinHeaderValues(entry.getValue()));
+            }
+        }
+        return responseHeaders;
+    }
+
+    private HttpURLConnection getConnection(String serviceURL, boolean output) throws IOException {
+
+        HttpURLConnection httpConnection = (HttpURLConnection) new URL(serviceURL).openConnection();
+        httpConnection.setDoInput(true);
+        httpConnection.setDoOutput(output);
+        return httpConnection;
+    }
+}
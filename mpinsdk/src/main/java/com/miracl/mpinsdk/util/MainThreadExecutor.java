@@ -0,0 +1,83 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.util;
+
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+
+/**
+ * Executor that runs commands on the main thread. Commands that are executed while a dispatch to the main thread is
+ * pending join that dispatch, so results completing close to each other, for example within the same frame, cost a
+ * single message on the main looper.
+ */
+public final class MainThreadExecutor implements Executor {
+
+    private static final MainThreadExecutor INSTANCE = new MainThreadExecutor();
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Object  mLock    = new Object();
+
+    private List<Runnable> mPending = new ArrayList<>();
+    private boolean        mDispatchScheduled;
+
+    private final Runnable mDispatch = new Runnable() {
+
+        @Override
+        public void run() {
+            List<Runnable> batch;
+            synchronized (mLock) {
+                batch = mPending;
+                mPending = new ArrayList<>();
+                mDispatchScheduled = false;
+            }
+            for (Runnable command : batch) {
+                command.run();
+            }
+        }
+    };
+
+    private MainThreadExecutor() {
+    }
+
+    public static MainThreadExecutor getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        boolean schedule;
+        synchronized (mLock) {
+            mPending.add(command);
+            schedule = !mDispatchScheduled;
+            mDispatchScheduled = true;
+        }
+        if (schedule) {
+            mHandler.post(mDispatch);
+        }
+    }
+}
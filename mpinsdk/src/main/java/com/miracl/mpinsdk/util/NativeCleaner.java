@@ -0,0 +1,167 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.util;
+
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Frees the native handles held by SDK objects once the objects become unreachable, without relying on finalizers. The
+ * objects are tracked with phantom references and their handles are freed in batches on a dedicated daemon thread, or
+ * right away when the object is closed explicitly.
+ */
+public final class NativeCleaner {
+
+    /**
+     * Frees a native handle. Implementations must not reference the object owning the handle, as that would keep it
+     * reachable.
+     */
+    public interface Deallocator {
+
+        void free(long handle);
+    }
+
+    /**
+     * The registration of a native handle, used to free the handle explicitly.
+     */
+    public static final class Cleanable extends PhantomReference<Object> {
+
+        private final long          handle;
+        private final Deallocator   deallocator;
+        private final AtomicBoolean freed = new AtomicBoolean();
+
+        private Cleanable(Object owner, long handle, Deallocator deallocator) {
+            super(owner, QUEUE);
+            this.handle = handle;
+            this.deallocator = deallocator;
+        }
+
+        /**
+         * Free the native handle now. Only the first call has an effect.
+         */
+        public void clean() {
+            if (free()) {
+                EXPLICIT_FREE_COUNT.incrementAndGet();
+            }
+        }
+
+        private boolean free() {
+            if (!freed.compareAndSet(false, true)) {
+                return false;
+            }
+            CLEANABLES.remove(this);
+            PENDING_COUNT.decrementAndGet();
+            try {
+                deallocator.free(handle);
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+            return true;
+        }
+    }
+
+    private static final int MAX_BATCH_SIZE = 64;
+
+    private static final ReferenceQueue<Object> QUEUE      = new ReferenceQueue<>();
+    private static final Set<Cleanable>         CLEANABLES = Collections
+      .newSetFromMap(new ConcurrentHashMap<Cleanable, Boolean>());
+
+    private static final AtomicInteger PENDING_COUNT       = new AtomicInteger();
+    private static final AtomicLong    EXPLICIT_FREE_COUNT = new AtomicLong();
+    private static final AtomicLong    CLEANER_FREE_COUNT  = new AtomicLong();
+
+    static {
+        Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                processQueue();
+            }
+        }, "MPinSDK-NativeCleaner");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private NativeCleaner() {
+    }
+
+    /**
+     * Track an object owning a native handle, so the handle is freed once the object becomes unreachable.
+     *
+     * @param owner
+     *   The object owning the handle
+     * @param handle
+     *   The native handle
+     * @param deallocator
+     *   Frees the handle
+     * @return The registration, which should be cleaned when the owner is closed explicitly
+     */
+    public static Cleanable register(Object owner, long handle, Deallocator deallocator) {
+        Cleanable cleanable = new Cleanable(owner, handle, deallocator);
+        CLEANABLES.add(cleanable);
+        PENDING_COUNT.incrementAndGet();
+        return cleanable;
+    }
+
+    /**
+     * @return The number of registered native handles that are not freed yet
+     */
+    public static int getPendingCount() {
+        return PENDING_COUNT.get();
+    }
+
+    /**
+     * @return The number of native handles freed because their owners were closed
+     */
+    public static long getExplicitFreeCount() {
+        return EXPLICIT_FREE_COUNT.get();
+    }
+
+    /**
+     * @return The number of native handles freed by the cleaner thread because their owners became unreachable
+     */
+    public static long getCleanerFreeCount() {
+        return CLEANER_FREE_COUNT.get();
+    }
+
+    private static void processQueue() {
+        while (true) {
+            try {
+                Cleanable cleanable = (Cleanable) QUEUE.remove();
+                int count = 0;
+                while (cleanable != null) {
+                    if (cleanable.free()) {
+                        CLEANER_FREE_COUNT.incrementAndGet();
+                    }
+                    // Free what is already enqueued as one batch, bounded so a burst of garbage doesn't monopolize the loop
+                    cleanable = ++count < MAX_BATCH_SIZE ? (Cleanable) QUEUE.poll() : null;
+                }
+            } catch (InterruptedException e) {
+                // Keep running, the cleaner lives as long as the process
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.util;
+
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Flat encoding of string maps passed between the Java and the native code. A map is encoded as a single byte array
+ * holding the entry count followed by the entries, each written as a length-prefixed UTF-8 key and value. All integers
+ * are 32-bit big-endian. This lets a whole map cross the JNI boundary with a single array copy instead of a JNI call
+ * per entry.
+ */
+public final class StringMapCodec {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private StringMapCodec() {
+    }
+
+    /**
+     * Encodes a map. Entries with a <code>null</code> key or value are skipped.
+     *
+     * @param map
+     *   The map to encode, may be <code>null</code>
+     * @return The encoded map, or <code>null</code> if the map is <code>null</code>
+     */
+    public static byte[] encode(Map<String, String> map) {
+        if (map == null) {
+            return null;
+        }
+
+        int count = 0;
+        int size = 4;
+        byte[][] encoded = new byte[map.size() * 2][];
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                continue;
+            }
+            byte[] key = entry.getKey().getBytes(UTF_8);
+            byte[] value = entry.getValue().getBytes(UTF_8);
+            encoded[count * 2] = key;
+            encoded[count * 2 + 1] = value;
+            size += 8 + key.length + value.length;
+            count++;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(count);
+        for (int i = 0; i < count * 2; i++) {
+            buffer.putInt(encoded[i].length);
+            buffer.put(encoded[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a map, keeping the order in which the entries were encoded.
+     *
+     * @param data
+     *   The encoded map, may be <code>null</code>
+     * @return The decoded map, or <code>null</code> if the data is <code>null</code>
+     * @throws IllegalArgumentException
+     *   If the data is malformed
+     */
+    public static Map<String, String> decode(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            int count = buffer.getInt();
+            if (count < 0) {
+                throw new IllegalArgumentException("Invalid string map entry count");
+            }
+
+            Map<String, String> map = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String key = readString(buffer);
+                map.put(key, readString(buffer));
+            }
+            return map;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated string map", e);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string map entry length");
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
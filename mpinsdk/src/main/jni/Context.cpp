@@ -46,11 +46,37 @@ Context::Context(jobject jcontext)
 
 IHttpRequest * Context::CreateHttpRequest() const
 {
-	return new HttpRequest(JNI_getJENV());
+	{
+		std::lock_guard<std::mutex> lock(m_httpRequestPoolMutex);
+		if(!m_httpRequestPool.empty())
+		{
+			IHttpRequest *request = m_httpRequestPool.back();
+			m_httpRequestPool.pop_back();
+			stats::Decrement(stats::POOLED_HTTP_BRIDGES);
+			return request;
+		}
+	}
+	return new HttpRequest();
 }
 
 void Context::ReleaseHttpRequest(IHttpRequest *request) const
 {
+	if(request == NULL)
+	{
+		return;
+	}
+
+	static_cast<HttpRequest *>(request)->Reset();
+
+	{
+		std::lock_guard<std::mutex> lock(m_httpRequestPoolMutex);
+		if(m_httpRequestPool.size() < MAX_POOLED_HTTP_REQUESTS)
+		{
+			m_httpRequestPool.push_back(request);
+			stats::Increment(stats::POOLED_HTTP_BRIDGES);
+			return;
+		}
+	}
 	RELEASE(request)
 }
 
@@ -73,6 +99,12 @@ MPinSDKBase::CryptoType Context::GetMPinCryptoType() const
 
 Context::~Context()
 {
+	for(std::vector<IHttpRequest *>::iterator i = m_httpRequestPool.begin(); i != m_httpRequestPool.end(); ++i)
+	{
+		delete *i;
+		stats::Decrement(stats::POOLED_HTTP_BRIDGES);
+	}
+	m_httpRequestPool.clear();
 	RELEASE(m_pIstorageSecure)
 	RELEASE(m_pIstorageNonSecure)
 	RELEASE(m_pInstance)
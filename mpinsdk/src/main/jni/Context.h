@@ -21,6 +21,8 @@
 #define _CONTEXT_H_
 
 #include "JNICommon.h"
+#include <mutex>
+#include <vector>
 
 namespace sdk
 {
@@ -45,6 +47,11 @@ private:
 	static Context* m_pInstance;
 	IStorage * m_pIstorageSecure;
 	IStorage * m_pIstorageNonSecure;
+
+	// Released HTTP requests kept for reuse, so their Java peers and global references are not recreated per request
+	static const size_t MAX_POOLED_HTTP_REQUESTS = 4;
+	mutable std::mutex m_httpRequestPoolMutex;
+	mutable std::vector<IHttpRequest *> m_httpRequestPool;
 };
 
 }
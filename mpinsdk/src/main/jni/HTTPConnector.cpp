@@ -27,157 +27,101 @@
 
 namespace net {
 
-HTTPConnector::HTTPConnector(JNIEnv* env) throw (IllegalArgumentException) :
-		m_pjenv(env), m_response(""), m_errorMessage(""), m_statusCode(0) {
-	if (m_pjenv == NULL)
+// The JNIEnv is fetched for every call instead of being kept, as the connector may be
+// used from any thread, including native threads that are attached on demand
+HTTPConnector::HTTPConnector() throw (IllegalArgumentException) :
+		m_response(""), m_errorMessage(""), m_statusCode(0), m_responseBufferBytes(0) {
+	JNIEnv* env = JNI_getJENV();
+	if (env == NULL)
 		throw IllegalArgumentException(
-				"NULL pointer JNIEnv is passed to the HTTPConnector constructor");
-	m_pjhttpRequestCls = reinterpret_cast<jclass>(m_pjenv->NewGlobalRef(
-			m_pjenv->FindClass("com/miracl/mpinsdk/net/HTTPConnector")));
-	m_pjhashtableCls = reinterpret_cast<jclass>(m_pjenv->NewGlobalRef(
-			m_pjenv->FindClass("java/util/Hashtable")));
-	const jmethodID midInit = m_pjenv->GetMethodID(m_pjhttpRequestCls, "<init>",
-			"()V");
-	m_pjhttpRequest = reinterpret_cast<jobject>(m_pjenv->NewGlobalRef(
-			m_pjenv->NewObject(m_pjhttpRequestCls, midInit)));
-}
-
-jobject HTTPConnector::createJavaMap(const StringMap& map) {
-	const jmethodID midInit = m_pjenv->GetMethodID(m_pjhashtableCls, "<init>",
-			"(I)V");
-	const jmethodID midPUT = m_pjenv->GetMethodID(m_pjhashtableCls, "put",
-			"(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;");
-
-	jobject jhashtable = m_pjenv->NewObject(m_pjhashtableCls, midInit,
-			map.size());
-
-	for (StringMap::const_iterator it = map.begin(); it != map.end(); ++it) {
-		jstring key = m_pjenv->NewStringUTF(it->first.c_str());
-		jstring value = m_pjenv->NewStringUTF(it->second.c_str());
-		m_pjenv->CallObjectMethod(jhashtable, midPUT, key, value);
-		m_pjenv->DeleteLocalRef(key);
-		m_pjenv->DeleteLocalRef(value);
-	}
-
-	return jhashtable;
-}
-
-void HTTPConnector::convertJHashtable2StringMap(jobject jhashtable, StringMap & a_map) throw (IllegalArgumentException) {
-	if (jhashtable == NULL)
-		throw IllegalArgumentException(
-				"NULL hashtable parrameter is passed to HTTPConnector::convertJHashtable2StringMap");
-
-	const jclass jhashtableCls = m_pjenv->FindClass("java/util/Hashtable");
-	const jclass jenumerationCls = m_pjenv->FindClass("java/util/Enumeration");
-
-	if (!m_pjenv->IsInstanceOf(jhashtable, jhashtableCls))
-		throw IllegalArgumentException(
-				"input parameter jhashtable is not instance of Hashtable <String , String> class. :: HTTPConnector::convertJHashtable2StringMap");
-
-	const jmethodID size = m_pjenv->GetMethodID(jhashtableCls, "size", "()I");
-	const jmethodID keys = m_pjenv->GetMethodID(jhashtableCls, "keys",
-			"()Ljava/util/Enumeration;");
-	const jmethodID get = m_pjenv->GetMethodID(jhashtableCls, "get",
-			"(Ljava/lang/Object;)Ljava/lang/Object;");
-	const jmethodID hasMoreElements = m_pjenv->GetMethodID(jenumerationCls,
-			"hasMoreElements", "()Z");
-	const jmethodID nextElement = m_pjenv->GetMethodID(jenumerationCls,
-			"nextElement", "()Ljava/lang/Object;");
-
-	jint hashtablesize = m_pjenv->CallIntMethod(jhashtable, size);
-	if (hashtablesize <= 0)
-		return;
-
-	jobject jenumeration = m_pjenv->CallObjectMethod(jhashtable, keys);
-	if (jenumeration == NULL)
-		throw IllegalArgumentException(
-				"HTTPConnector::convertJHashtable2StringMap :: An error has occured while getting reference to Hashtable Enumeration Interface!");
-	;
-
-	while (m_pjenv->CallBooleanMethod(jenumeration, hasMoreElements) == JNI_TRUE) {
-		jstring key = (jstring) m_pjenv->CallObjectMethod(jenumeration,
-				nextElement);
-		jstring value = (jstring) m_pjenv->CallObjectMethod(jhashtable, get,
-				key);
-
-		const char * keyChars = m_pjenv->GetStringUTFChars(key, NULL);
-		const char * valueChars = (char *) m_pjenv->GetStringUTFChars(value,
-				NULL);
-
-		a_map[keyChars] = valueChars;
-
-		m_pjenv->ReleaseStringUTFChars(key, keyChars);
-		m_pjenv->ReleaseStringUTFChars(value, valueChars);
-	}
+				"Failed to get a JNIEnv for the HTTPConnector constructor");
+	const JNIRegistry& jni = JNI_getRegistry();
+	jobject jhttpRequest = env->NewObject(jni.httpConnector.cls,
+			jni.httpConnector.ctor);
+	m_pjhttpRequest = env->NewGlobalRef(jhttpRequest);
+	env->DeleteLocalRef(jhttpRequest);
+	stats::Increment(stats::GLOBAL_REFS);
+	stats::Increment(stats::HTTP_BRIDGES);
 }
 
 void HTTPConnector::SetHeaders(const StringMap& headers) {
-	const jmethodID midSetHeaders = m_pjenv->GetMethodID(m_pjhttpRequestCls,
-			"SetHeaders", "(Ljava/util/Hashtable;)V");
-	jobject jhashtable = createJavaMap(headers);
-	m_pjenv->CallVoidMethod(m_pjhttpRequest, midSetHeaders, jhashtable);
+	JNIEnv* env = JNI_getJENV();
+	jbyteArray jheaders = MakeJavaMap(env, headers);
+	env->CallVoidMethod(m_pjhttpRequest,
+			JNI_getRegistry().httpConnector.midSetHeaders, jheaders);
+	env->DeleteLocalRef(jheaders);
 }
 
 void HTTPConnector::SetQueryParams(const StringMap& queryParams) {
-	const jmethodID midSetQueryParams = m_pjenv->GetMethodID(m_pjhttpRequestCls,
-			"SetQueryParams", "(Ljava/util/Hashtable;)V");
-	jobject jhashtable = createJavaMap(queryParams);
-	m_pjenv->CallVoidMethod(m_pjhttpRequest, midSetQueryParams, jhashtable);
+	JNIEnv* env = JNI_getJENV();
+	jbyteArray jqueryParams = MakeJavaMap(env, queryParams);
+	env->CallVoidMethod(m_pjhttpRequest,
+			JNI_getRegistry().httpConnector.midSetQueryParams, jqueryParams);
+	env->DeleteLocalRef(jqueryParams);
 }
 
 void HTTPConnector::SetContent(const String& data) {
-	const jmethodID midSetContent = m_pjenv->GetMethodID(m_pjhttpRequestCls,
-			"SetContent", "(Ljava/lang/String;)V");
-	jstring message = m_pjenv->NewStringUTF(data.c_str());
-	m_pjenv->CallVoidMethod(m_pjhttpRequest, midSetContent, message);
+	JNIEnv* env = JNI_getJENV();
+	jstring message = env->NewStringUTF(data.c_str());
+	env->CallVoidMethod(m_pjhttpRequest,
+			JNI_getRegistry().httpConnector.midSetContent, message);
+	env->DeleteLocalRef(message);
 }
 
 void HTTPConnector::SetTimeout(int seconds) {
-	const jmethodID midSetContent = m_pjenv->GetMethodID(m_pjhttpRequestCls,
-			"SetContent", "(Ljava/lang/String;)V");
-	m_pjenv->CallVoidMethod(m_pjhttpRequest, midSetContent, seconds);
+	JNIEnv* env = JNI_getJENV();
+	env->CallVoidMethod(m_pjhttpRequest,
+			JNI_getRegistry().httpConnector.midSetTimeout, seconds);
 }
 
 bool HTTPConnector::Execute(Method method, const String& url) {
-	const jmethodID midExecute = m_pjenv->GetMethodID(m_pjhttpRequestCls,
-			"Execute", "(ILjava/lang/String;)Z");
-	const jfieldID fidStatusCode = m_pjenv->GetFieldID(m_pjhttpRequestCls,
-			"statusCode", "I");
-	const jfieldID fidResponseHeaders = m_pjenv->GetFieldID(m_pjhttpRequestCls,
-			"responseHeaders", "Ljava/util/Hashtable;");
-	const jfieldID fidResponseData = m_pjenv->GetFieldID(m_pjhttpRequestCls,
-			"responseData", "Ljava/lang/String;");
-	const jfieldID fidErrorMessage = m_pjenv->GetFieldID(m_pjhttpRequestCls,
-			"errorMessage", "Ljava/lang/String;");
+	JNIEnv* env = JNI_getJENV();
+	const JNIRegistry& jni = JNI_getRegistry();
 	m_errorMessage = "";
+	if (env == NULL) {
+		m_errorMessage = "Failed to attach the current thread to the Java VM :: HTTPConnector::Execute";
+		return false;
+	}
 
-	jboolean rc = m_pjenv->CallBooleanMethod(m_pjhttpRequest, midExecute,
-			(jint) method, m_pjenv->NewStringUTF(url.c_str()));
-
-	m_statusCode = m_pjenv->GetIntField(m_pjhttpRequest, fidStatusCode);
-
-	jobject jresponseHeaders = m_pjenv->GetObjectField(m_pjhttpRequest,
-			fidResponseHeaders);
-	try {
-		convertJHashtable2StringMap(jresponseHeaders, m_responseHeaders);
-	} catch (IllegalArgumentException &e) {
-		m_errorMessage = e.what();
+	jstring jurl = env->NewStringUTF(url.c_str());
+	jboolean rc = env->CallBooleanMethod(m_pjhttpRequest,
+			jni.httpConnector.midExecute, (jint) method, jurl);
+	env->DeleteLocalRef(jurl);
+
+	m_statusCode = env->GetIntField(m_pjhttpRequest,
+			jni.httpConnector.fidStatusCode);
+
+	jbyteArray jresponseHeaders = reinterpret_cast<jbyteArray>(env->GetObjectField(
+			m_pjhttpRequest, jni.httpConnector.fidResponseHeaders));
+	m_responseHeaders.clear();
+	if (jresponseHeaders != NULL) {
+		if (!ReadJavaMap(env, jresponseHeaders, m_responseHeaders))
+			m_errorMessage = "Malformed response headers :: HTTPConnector::Execute";
+		env->DeleteLocalRef(jresponseHeaders);
 	}
 
-	jstring jresponseData = reinterpret_cast<jstring>((m_pjenv->GetObjectField(
-			m_pjhttpRequest, fidResponseData)));
-	if (jresponseData != NULL) {
-		const char *cRespStr = m_pjenv->GetStringUTFChars(jresponseData, NULL);
-		m_response = cRespStr;
-		m_pjenv->ReleaseStringUTFChars(jresponseData, cRespStr);
+	// The response body is a direct ByteBuffer, so it is copied straight from its memory
+	jobject jresponseBody = env->GetObjectField(m_pjhttpRequest,
+			jni.httpConnector.fidResponseBody);
+	if (jresponseBody != NULL) {
+		const char *cBody = static_cast<const char *>(env->GetDirectBufferAddress(
+				jresponseBody));
+		jint length = env->GetIntField(m_pjhttpRequest,
+				jni.httpConnector.fidResponseLength);
+		if (cBody != NULL) {
+			m_response.assign(cBody, length);
+			updateResponseBufferStats();
+		}
+		env->DeleteLocalRef(jresponseBody);
 	}
 
-	jstring jerrorMessage = reinterpret_cast<jstring>((m_pjenv->GetObjectField(
-			m_pjhttpRequest, fidErrorMessage)));
+	jstring jerrorMessage = reinterpret_cast<jstring>((env->GetObjectField(
+			m_pjhttpRequest, jni.httpConnector.fidErrorMessage)));
 	if (jerrorMessage != NULL) {
-		const char *cErrorStr = m_pjenv->GetStringUTFChars(jerrorMessage, NULL);
+		const char *cErrorStr = env->GetStringUTFChars(jerrorMessage, NULL);
 		m_errorMessage += cErrorStr;
-		m_pjenv->ReleaseStringUTFChars(jerrorMessage, cErrorStr);
+		env->ReleaseStringUTFChars(jerrorMessage, cErrorStr);
+		env->DeleteLocalRef(jerrorMessage);
 	}
 
 	return (rc == JNI_TRUE);
@@ -199,12 +143,31 @@ const String& HTTPConnector::GetResponseData() const {
 	return m_response;
 }
 
+void HTTPConnector::Reset() {
+	JNIEnv* env = JNI_getJENV();
+	env->CallVoidMethod(m_pjhttpRequest,
+			JNI_getRegistry().httpConnector.midReset);
+	m_errorMessage.clear();
+	m_responseHeaders.clear();
+	// Release the buffer rather than keep its capacity while the connector sits in the pool
+	String().swap(m_response);
+	updateResponseBufferStats();
+	m_statusCode = 0;
+}
+
+void HTTPConnector::updateResponseBufferStats() {
+	long bytes = (long) m_response.capacity();
+	stats::Add(stats::RESPONSE_BUFFER_BYTES, bytes - m_responseBufferBytes);
+	m_responseBufferBytes = bytes;
+}
+
 HTTPConnector::~HTTPConnector() {
-	if (m_pjenv == NULL)
+	stats::Add(stats::RESPONSE_BUFFER_BYTES, -m_responseBufferBytes);
+	stats::Decrement(stats::HTTP_BRIDGES);
+	JNIEnv* env = JNI_getJENV();
+	if (env == NULL)
 		return;
-	RELEASE_JNIREF(m_pjenv, m_pjhttpRequestCls)
-	RELEASE_JNIREF(m_pjenv, m_pjhashtableCls)
-	RELEASE_JNIREF(m_pjenv, m_pjhttpRequest)
+	RELEASE_JNIREF(env, m_pjhttpRequest)
 }
 
 }
@@ -40,7 +40,7 @@ namespace net {
 
 	class HTTPConnector : public IHttpRequest {
 		public:
-			HTTPConnector(JNIEnv*) throw(IllegalArgumentException);
+			HTTPConnector() throw(IllegalArgumentException);
 
 			virtual void SetHeaders(const StringMap& headers);
 			virtual void SetQueryParams(const StringMap& queryParams);
@@ -52,15 +52,14 @@ namespace net {
 			virtual const StringMap& GetResponseHeaders() const;
 			virtual const String& GetResponseData() const;
 
+			/*
+			 * Clears the per-request state so the connector can be reused for another request
+			 */
+			void Reset();
+
 			virtual  ~HTTPConnector();
 
 		private:
-			JNIEnv* m_pjenv;
-
-			// JNI CLASES ::
-			jclass m_pjhttpRequestCls;
-			jclass m_pjhashtableCls;
-
 			// JNI OBJECTS ::
 			jobject m_pjhttpRequest;
 
@@ -69,11 +68,10 @@ namespace net {
 			StringMap  m_responseHeaders;
 			String m_response;
 			int m_statusCode;
+			long m_responseBufferBytes;
 
-			HTTPConnector();
 			HTTPConnector(const HTTPConnector &);
-			jobject createJavaMap(const StringMap& map);
-			void convertJHashtable2StringMap(jobject jhashtable, StringMap & a_map) throw(IllegalArgumentException);
+			void updateResponseBufferStats();
 	};
 }
 
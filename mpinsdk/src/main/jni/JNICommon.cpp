@@ -26,24 +26,59 @@
 #include "JNICommon.h"
 #include "JNIUser.h"
 #include "JNIMPinMFA.h"
+#include <pthread.h>
 
 static JavaVM * g_jvm;
 
+// Set on the native threads attached by JNI_getJENV(), so they are detached when they exit
+static pthread_key_t g_attachedThreadKey;
+
+static void DetachCurrentThread(void* env)
+{
+	g_jvm->DetachCurrentThread();
+}
+
 JNIEnv* JNI_getJENV()
 {
-	 JNIEnv* env;
-	 if(g_jvm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_6) != JNI_OK)
-	 {
-		 return NULL;
-	 }
-	 return env;
+	JNIEnv* env;
+	jint rc = g_jvm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_6);
+	if(rc == JNI_OK)
+	{
+		return env;
+	}
+	if(rc != JNI_EDETACHED)
+	{
+		return NULL;
+	}
+
+	// A thread created by the native code, attach it for the rest of its life
+	JavaVMAttachArgs args;
+	args.version = JNI_VERSION_1_6;
+	args.name = const_cast<char*>("MPinSDK-native");
+	args.group = NULL;
+	if(g_jvm->AttachCurrentThread(&env, &args) != JNI_OK)
+	{
+		return NULL;
+	}
+	pthread_setspecific(g_attachedThreadKey, env);
+	return env;
 }
 
 jint JNI_OnLoad(JavaVM* vm, void* reserved)
 {
 	g_jvm = vm;
+	if(pthread_key_create(&g_attachedThreadKey, DetachCurrentThread) != 0)
+	{
+		return JNI_ERR;
+	}
 	JNIEnv* env = JNI_getJENV();
 
+	if(!InitJNIRegistry(env))
+	{
+		env->FatalError("InitJNIRegistry failed");
+		return JNI_ERR;
+	}
+
 	RegisterMPinMFAJNI(env);
 	RegisterUserJNI(env);
 
@@ -67,45 +102,92 @@ void RegisterNativeMethods(JNIEnv* env, const char* className, const JNINativeMe
 	}
 }
 
-void ReadJavaMap(JNIEnv* env, jobject jmap, MPinSDKBase::StringMap& map)
+static bool ReadMapInt(const std::string& data, size_t& pos, uint32_t& value)
 {
-	jclass clsMap = env->FindClass("java/util/Map");
-	jclass clsSet = env->FindClass("java/util/Set");
-	jclass clsIterator = env->FindClass("java/util/Iterator");
+	if(data.size() - pos < 4)
+	{
+		return false;
+	}
 
-	jmethodID midKeySet = env->GetMethodID(clsMap, "keySet", "()Ljava/util/Set;");
-	jobject jkeySet = env->CallObjectMethod(jmap, midKeySet);
+	const unsigned char* p = (const unsigned char*) data.data() + pos;
+	value = ((uint32_t) p[0] << 24) | ((uint32_t) p[1] << 16) | ((uint32_t) p[2] << 8) | (uint32_t) p[3];
+	pos += 4;
+	return true;
+}
 
-	jmethodID midIterator = env->GetMethodID(clsSet, "iterator", "()Ljava/util/Iterator;");
-	jobject jkeySetIter = env->CallObjectMethod(jkeySet, midIterator);
+static bool ReadMapString(const std::string& data, size_t& pos, std::string& str)
+{
+	uint32_t length;
+	if(!ReadMapInt(data, pos, length) || data.size() - pos < length)
+	{
+		return false;
+	}
 
-	jmethodID midHasNext = env->GetMethodID(clsIterator, "hasNext", "()Z");
-	jmethodID midNext = env->GetMethodID(clsIterator, "next", "()Ljava/lang/Object;");
+	str.assign(data, pos, length);
+	pos += length;
+	return true;
+}
 
-	jmethodID midGet = env->GetMethodID(clsMap, "get", "(Ljava/lang/Object;)Ljava/lang/Object;");
+static void WriteMapInt(std::string& data, uint32_t value)
+{
+	data.push_back((char) (value >> 24));
+	data.push_back((char) (value >> 16));
+	data.push_back((char) (value >> 8));
+	data.push_back((char) value);
+}
 
+bool ReadJavaMap(JNIEnv* env, jbyteArray jmap, MPinSDKBase::StringMap& map)
+{
 	map.clear();
 
-	while(env->CallBooleanMethod(jkeySetIter, midHasNext)) {
-		jstring jkey = (jstring) env->CallObjectMethod(jkeySetIter, midNext);
-		jstring jvalue = (jstring) env->CallObjectMethod(jmap, midGet, jkey);
-
-		const char* cstr = env->GetStringUTFChars(jkey, NULL);
-		MPinSDKBase::String key(cstr);
-		env->ReleaseStringUTFChars(jkey, cstr);
-		cstr = env->GetStringUTFChars(jvalue, NULL);
-		MPinSDKBase::String value(cstr);
-		env->ReleaseStringUTFChars(jvalue, cstr);
+	std::string data = JavaByteArrayToStdString(env, jmap);
+	size_t pos = 0;
+	uint32_t count;
+	if(!ReadMapInt(data, pos, count))
+	{
+		return false;
+	}
 
+	for(uint32_t i = 0; i < count; ++i)
+	{
+		MPinSDKBase::String key;
+		MPinSDKBase::String value;
+		if(!ReadMapString(data, pos, key) || !ReadMapString(data, pos, value))
+		{
+			return false;
+		}
 		map[key] = value;
 	}
+
+	return true;
+}
+
+jbyteArray MakeJavaMap(JNIEnv* env, const MPinSDKBase::StringMap& map)
+{
+	std::string data;
+	size_t size = 4;
+	for(MPinSDKBase::StringMap::const_iterator i = map.begin(); i != map.end(); ++i)
+	{
+		size += 8 + i->first.size() + i->second.size();
+	}
+	data.reserve(size);
+
+	WriteMapInt(data, (uint32_t) map.size());
+	for(MPinSDKBase::StringMap::const_iterator i = map.begin(); i != map.end(); ++i)
+	{
+		WriteMapInt(data, (uint32_t) i->first.size());
+		data.append(i->first);
+		WriteMapInt(data, (uint32_t) i->second.size());
+		data.append(i->second);
+	}
+
+	return StdStringToJavaByteArray(env, data);
 }
 
 jobject MakeJavaStatus(JNIEnv* env, const MPinSDKBase::Status& status)
 {
-	jclass clsStatus = env->FindClass("com/miracl/mpinsdk/model/Status");
-	jmethodID ctorStatus = env->GetMethodID(clsStatus, "<init>", "(ILjava/lang/String;)V");
-	return env->NewObject(clsStatus, ctorStatus, (jint) status.GetStatusCode(), env->NewStringUTF(status.GetErrorMessage().c_str()));
+	const JNIRegistry& jni = JNI_getRegistry();
+	return env->NewObject(jni.status.cls, jni.status.ctor, (jint) status.GetStatusCode(), env->NewStringUTF(status.GetErrorMessage().c_str()));
 }
 
 std::string JavaToStdString(JNIEnv* env, jstring jstr)
@@ -155,7 +237,12 @@ MPinSDKBase::MultiFactor JavaStringArrayToMultiFactor(JNIEnv* env, jobjectArray
 
 MPinSDKBase::UserPtr JavaToMPinUser(JNIEnv* env, jobject juser)
 {
-	jclass clsUser = env->FindClass("com/miracl/mpinsdk/model/User");
-	jfieldID fidPtr = env->GetFieldID(clsUser, "mPtr", "J");
-	return *((MPinSDKBase::UserPtr*) env->GetLongField(juser, fidPtr));
+	return *((MPinSDKBase::UserPtr*) env->GetLongField(juser, JNI_getRegistry().user.fidPtr));
+}
+
+jobject MakeJavaUser(JNIEnv* env, const MPinSDKBase::UserPtr& user)
+{
+	const JNIRegistry& jni = JNI_getRegistry();
+	stats::Increment(stats::USER_HANDLES);
+	return env->NewObject(jni.user.cls, jni.user.ctor, (jlong) new MPinSDKBase::UserPtr(user));
 }
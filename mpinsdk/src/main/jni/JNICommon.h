@@ -23,6 +23,8 @@
 #include <jni.h>
 #include <android/log.h>
 #include "mfa_sdk.h"
+#include "JNIRegistry.h"
+#include "NativeStats.h"
 
 /*
  * Helper macros
@@ -36,6 +38,7 @@
 #define RELEASE_JNIREF(env , ref)  \
     if ((ref) != NULL ) { \
         (env)->DeleteGlobalRef((ref)); \
+        stats::Decrement(stats::GLOBAL_REFS); \
         (ref) = NULL;    \
     } \
 
@@ -58,6 +61,10 @@
  * Helper functions
  */
 
+/*
+ * Returns the JNIEnv of the current thread, attaching the thread to the VM if it is a native thread.
+ * Attached threads are detached automatically when they exit. The result must not be kept across calls.
+ */
 JNIEnv* JNI_getJENV();
 
 /*
@@ -65,7 +72,13 @@ JNIEnv* JNI_getJENV();
  */
 void RegisterNativeMethods(JNIEnv* env, const char* className, const JNINativeMethod* methods, int numMethods);
 
-void ReadJavaMap(JNIEnv* env, jobject jmap, MPinSDKBase::StringMap& map);
+/*
+ * String maps cross the JNI boundary as a single byte[] holding the entry count followed by
+ * length-prefixed UTF-8 keys and values, all integers 32-bit big-endian (see StringMapCodec.java)
+ */
+bool ReadJavaMap(JNIEnv* env, jbyteArray jmap, MPinSDKBase::StringMap& map);
+
+jbyteArray MakeJavaMap(JNIEnv* env, const MPinSDKBase::StringMap& map);
 
 jobject MakeJavaStatus(JNIEnv* env, const MPinSDKBase::Status& status);
 
@@ -73,6 +86,8 @@ std::string JavaToStdString(JNIEnv* env, jstring jstr);
 
 MPinSDKBase::UserPtr JavaToMPinUser(JNIEnv* env, jobject juser);
 
+jobject MakeJavaUser(JNIEnv* env, const MPinSDKBase::UserPtr& user);
+
 std::string JavaByteArrayToStdString(JNIEnv* env, jbyteArray jByteArr);
 
 MPinSDKBase::MultiFactor JavaStringArrayToMultiFactor(JNIEnv* env, jobjectArray jstringArray);
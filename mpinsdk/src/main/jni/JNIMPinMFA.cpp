@@ -19,24 +19,44 @@
 
 #include "JNICommon.h"
 #include "Context.h"
+#include <algorithm>
+#include <cctype>
 
 
 typedef sdk::Context Context;
 
 static jlong nConstruct(JNIEnv* env, jobject jobj)
 {
+	stats::Increment(stats::SDK_INSTANCES);
 	return (jlong) new MfaSDK();
 }
 
-static void nDestruct(JNIEnv* env, jobject jobj, jlong jptr)
+static void nDestruct(JNIEnv* env, jclass jcls, jlong jptr)
 {
 	MfaSDK* sdk = (MfaSDK*) jptr;
+	if(sdk != NULL)
+	{
+		stats::Decrement(stats::SDK_INSTANCES);
+	}
 	delete sdk;
 }
 
+static jlongArray nGetNativeCounters(JNIEnv* env, jclass jcls)
+{
+	jlong counters[stats::COUNTER_COUNT];
+	for(int i = 0; i < stats::COUNTER_COUNT; ++i)
+	{
+		counters[i] = stats::Get((stats::Counter) i);
+	}
+
+	jlongArray jcounters = env->NewLongArray(stats::COUNTER_COUNT);
+	env->SetLongArrayRegion(jcounters, 0, stats::COUNTER_COUNT, counters);
+	return jcounters;
+}
+
 // MPinSDKBase
 
-static jobject nInit(JNIEnv* env, jobject jobj, jlong jptr, jobject jconfig, jobject jcontext)
+static jobject nInit(JNIEnv* env, jobject jobj, jlong jptr, jbyteArray jconfig, jobject jcontext)
 {
 	MfaSDK::StringMap config;
 	if(jconfig)
@@ -48,7 +68,7 @@ static jobject nInit(JNIEnv* env, jobject jobj, jlong jptr, jobject jconfig, job
 	return MakeJavaStatus(env, sdk->Init(config, Context::Instance(jcontext)));
 }
 
-static void nAddCustomHeaders(JNIEnv* env, jobject jobj, jlong jptr, jobject jcustomHeaders)
+static void nAddCustomHeaders(JNIEnv* env, jobject jobj, jlong jptr, jbyteArray jcustomHeaders)
 {
 	MfaSDK::StringMap customHeaders;
     if(jcustomHeaders)
@@ -101,9 +121,7 @@ static jobject nMakeNewUser(JNIEnv* env, jobject jobj, jlong jptr, jstring jid,
 {
     MfaSDK* sdk = (MfaSDK*) jptr;
     MPinSDKBase::UserPtr user = sdk->MakeNewUser(JavaToStdString(env, jid), JavaToStdString(env, jdeviceName));
-    jclass clsUser = env->FindClass("com/miracl/mpinsdk/model/User");
-    jmethodID ctorUser = env->GetMethodID(clsUser, "<init>", "(J)V");
-    return env->NewObject(clsUser, ctorUser, (jlong) new MPinSDKBase::UserPtr(user));
+    return MakeJavaUser(env, user);
 }
 
 static void nDeleteUser(JNIEnv* env, jobject jobj, jlong jptr, jobject juser)
@@ -155,14 +173,12 @@ static jobject nGetServiceDetails(JNIEnv* env, jobject jobj, jlong jptr, jstring
 
     if(status == MPinSDKBase::Status::OK)
     {
-        jclass clsServiceDetails = env->FindClass("com/miracl/mpinsdk/model/ServiceDetails");
-        jfieldID fIdName = env->GetFieldID(clsServiceDetails, "name", "Ljava/lang/String;");
-        jfieldID fIdBackendUrl = env->GetFieldID(clsServiceDetails, "backendUrl", "Ljava/lang/String;");
-        jfieldID fIdLogoUrl = env->GetFieldID(clsServiceDetails, "logoUrl", "Ljava/lang/String;");
-
-        env->SetObjectField(jserviceDetails, fIdName, env->NewStringUTF(serviceDetails.name.c_str()));
-        env->SetObjectField(jserviceDetails, fIdBackendUrl, env->NewStringUTF(serviceDetails.backendUrl.c_str()));
-        env->SetObjectField(jserviceDetails, fIdLogoUrl, env->NewStringUTF(serviceDetails.logoUrl.c_str()));
+        env->PushLocalFrame(4);
+        env->CallVoidMethod(jserviceDetails, JNI_getRegistry().serviceDetails.midSet,
+                env->NewStringUTF(serviceDetails.name.c_str()),
+                env->NewStringUTF(serviceDetails.backendUrl.c_str()),
+                env->NewStringUTF(serviceDetails.logoUrl.c_str()));
+        env->PopLocalFrame(NULL);
     }
 
     return MakeJavaStatus(env, status);
@@ -183,26 +199,18 @@ static jobject nGetSessionDetails(JNIEnv* env, jobject jobj, jlong jptr, jstring
 
     if(status == MfaSDK::Status::OK)
     {
-        jclass clsSessionDetails = env->FindClass("com/miracl/mpinsdk/model/SessionDetails");
-        jfieldID fIdPrerollId = env->GetFieldID(clsSessionDetails, "prerollId", "Ljava/lang/String;");
-        jfieldID fIdAppName = env->GetFieldID(clsSessionDetails, "appName", "Ljava/lang/String;");
-        jfieldID fIdAppIconUrl = env->GetFieldID(clsSessionDetails, "appIconUrl", "Ljava/lang/String;");
-        jfieldID fIdCustomerId = env->GetFieldID(clsSessionDetails, "customerId", "Ljava/lang/String;");
-        jfieldID fIdCustomerName = env->GetFieldID(clsSessionDetails, "customerName", "Ljava/lang/String;");
-        jfieldID fIdCustomerIconUrl = env->GetFieldID(clsSessionDetails, "customerIconUrl", "Ljava/lang/String;");
-        jfieldID fIdRegisterOnly = env->GetFieldID(clsSessionDetails, "registerOnly", "Z");
-        jfieldID fIdClientId = env->GetFieldID(clsSessionDetails, "clientId", "Ljava/lang/String;");
-        jfieldID fIdRedirectUri = env->GetFieldID(clsSessionDetails, "redirectUri", "Ljava/lang/String;");
-
-        env->SetObjectField(jsessionDetails, fIdPrerollId, env->NewStringUTF(sessionDetails.prerollId.c_str()));
-        env->SetObjectField(jsessionDetails, fIdAppName, env->NewStringUTF(sessionDetails.appName.c_str()));
-        env->SetObjectField(jsessionDetails, fIdAppIconUrl, env->NewStringUTF(sessionDetails.appIconUrl.c_str()));
-        env->SetObjectField(jsessionDetails, fIdCustomerId, env->NewStringUTF(sessionDetails.customerId.c_str()));
-        env->SetObjectField(jsessionDetails, fIdCustomerName, env->NewStringUTF(sessionDetails.customerName.c_str()));
-        env->SetObjectField(jsessionDetails, fIdCustomerIconUrl, env->NewStringUTF(sessionDetails.customerIconUrl.c_str()));
-        env->SetBooleanField(jsessionDetails, fIdRegisterOnly, (jboolean) sessionDetails.registerOnly);
-        env->SetObjectField(jsessionDetails, fIdClientId, env->NewStringUTF(sessionDetails.clientId.c_str()));
-        env->SetObjectField(jsessionDetails, fIdRedirectUri, env->NewStringUTF(sessionDetails.redirectURI.c_str()));
+        env->PushLocalFrame(9);
+        env->CallVoidMethod(jsessionDetails, JNI_getRegistry().sessionDetails.midSet,
+                env->NewStringUTF(sessionDetails.prerollId.c_str()),
+                env->NewStringUTF(sessionDetails.appName.c_str()),
+                env->NewStringUTF(sessionDetails.appIconUrl.c_str()),
+                env->NewStringUTF(sessionDetails.customerId.c_str()),
+                env->NewStringUTF(sessionDetails.customerName.c_str()),
+                env->NewStringUTF(sessionDetails.customerIconUrl.c_str()),
+                env->NewStringUTF(sessionDetails.clientId.c_str()),
+                env->NewStringUTF(sessionDetails.redirectURI.c_str()),
+                (jboolean) sessionDetails.registerOnly);
+        env->PopLocalFrame(NULL);
     }
 
     return MakeJavaStatus(env, status);
@@ -229,14 +237,12 @@ static jobject nFinishVerification(JNIEnv* env,jobject jobj, jlong jptr, jobject
 
     if(status == MPinSDKBase::Status::OK)
     {
-        jclass clsVerificationResult = env->FindClass("com/miracl/mpinsdk/model/VerificationResult");
-        jfieldID fIdAccessCode = env->GetFieldID(clsVerificationResult, "accessCode", "Ljava/lang/String;");
-        jfieldID fIdVerificationToken = env->GetFieldID(clsVerificationResult, "activationToken", "Ljava/lang/String;");
-        jfieldID fIdExpireTime = env->GetFieldID(clsVerificationResult, "expireTime", "J");
-
-        env->SetObjectField(jverificationResult, fIdAccessCode, env->NewStringUTF(verificationResult.accessId.c_str()));
-        env->SetObjectField(jverificationResult, fIdVerificationToken, env->NewStringUTF(verificationResult.activationToken.c_str()));
-        env->SetLongField(jverificationResult, fIdExpireTime, verificationResult.expireTime);
+        env->PushLocalFrame(2);
+        env->CallVoidMethod(jverificationResult, JNI_getRegistry().verificationResult.midSet,
+                env->NewStringUTF(verificationResult.accessId.c_str()),
+                env->NewStringUTF(verificationResult.activationToken.c_str()),
+                (jlong) verificationResult.expireTime);
+        env->PopLocalFrame(NULL);
     }
 
     return MakeJavaStatus(env, status);
@@ -298,11 +304,9 @@ static jobject nGetAccessCode(JNIEnv* env, jobject jobj, jlong jptr, jstring jau
 	MfaSDK::String accessCode;
 	MfaSDK::Status status = sdk->GetAccessCode(JavaToStdString(env, jauthUrl), accessCode);
 
-	jclass clsStringBuilder = env->FindClass("java/lang/StringBuilder");
-	jmethodID midSetLength = env->GetMethodID(clsStringBuilder, "setLength", "(I)V");
-	env->CallVoidMethod(jaccessCode, midSetLength, accessCode.size());
-	jmethodID midReplace = env->GetMethodID(clsStringBuilder, "replace", "(IILjava/lang/String;)Ljava/lang/StringBuilder;");
-	env->CallObjectMethod(jaccessCode, midReplace, 0, accessCode.size(), env->NewStringUTF(accessCode.c_str()));
+	const JNIRegistry& jni = JNI_getRegistry();
+	env->CallVoidMethod(jaccessCode, jni.stringBuilder.midSetLength, accessCode.size());
+	env->CallObjectMethod(jaccessCode, jni.stringBuilder.midReplace, 0, accessCode.size(), env->NewStringUTF(accessCode.c_str()));
 
 	return MakeJavaStatus(env, status);
 }
@@ -340,17 +344,14 @@ static jobject nFinishAuthenticationRegCode(JNIEnv* env, jobject jobj, jlong jpt
 
     if(status == MfaSDK::Status::OK)
     {
-        jclass clsOTP = env->FindClass("com/miracl/mpinsdk/model/OTP");
-        jfieldID fidOtp = env->GetFieldID(clsOTP, "otp", "Ljava/lang/String;");
-        jfieldID fidExpireTime = env->GetFieldID(clsOTP, "expireTime", "J");
-        jfieldID fidTtlSeconds = env->GetFieldID(clsOTP, "ttlSeconds", "I");
-        jfieldID fidNowTime = env->GetFieldID(clsOTP, "nowTime", "J");
-        jfieldID fidStatus = env->GetFieldID(clsOTP, "status", "Lcom/miracl/mpinsdk/model/Status;");
-        env->SetObjectField(jregCode, fidOtp, env->NewStringUTF(regCode.otp.c_str()));
-        env->SetLongField(jregCode, fidExpireTime, regCode.expireTime);
-        env->SetIntField(jregCode, fidTtlSeconds, regCode.ttlSeconds);
-        env->SetLongField(jregCode, fidNowTime, regCode.nowTime);
-        env->SetObjectField(jregCode, fidStatus, MakeJavaStatus(env, regCode.status));
+        env->PushLocalFrame(4);
+        env->CallVoidMethod(jregCode, JNI_getRegistry().otp.midSet,
+                env->NewStringUTF(regCode.otp.c_str()),
+                (jlong) regCode.expireTime,
+                (jint) regCode.ttlSeconds,
+                (jlong) regCode.nowTime,
+                MakeJavaStatus(env, regCode.status));
+        env->PopLocalFrame(NULL);
     }
 
     return MakeJavaStatus(env, status);
@@ -368,11 +369,9 @@ static jobject FinishAuthenticationAuthCode(JNIEnv* env, jobject jobj, jlong jpt
     MfaSDK::String authCodeData;
     MfaSDK::Status status = sdk->FinishAuthentication(JavaToMPinUser(env, juser), multiFactor, JavaToStdString(env, jaccessCode), authCodeData);
 
-    jclass clsStringBuilder = env->FindClass("java/lang/StringBuilder");
-    jmethodID midSetLength = env->GetMethodID(clsStringBuilder, "setLength", "(I)V");
-    env->CallVoidMethod(jauthCode, midSetLength, authCodeData.size());
-    jmethodID midReplace = env->GetMethodID(clsStringBuilder, "replace", "(IILjava/lang/String;)Ljava/lang/StringBuilder;");
-    env->CallObjectMethod(jauthCode, midReplace, 0, authCodeData.size(), env->NewStringUTF(authCodeData.c_str()));
+    const JNIRegistry& jni = JNI_getRegistry();
+    env->CallVoidMethod(jauthCode, jni.stringBuilder.midSetLength, authCodeData.size());
+    env->CallObjectMethod(jauthCode, jni.stringBuilder.midReplace, 0, authCodeData.size(), env->NewStringUTF(authCodeData.c_str()));
 
     return MakeJavaStatus(env, status);
 }
@@ -402,17 +401,14 @@ static jobject FinishAuthenticationOTP(JNIEnv* env, jobject jobj, jlong jptr, jo
 
     if(status == MfaSDK::Status::OK)
     {
-        jclass clsOTP = env->FindClass("com/miracl/mpinsdk/model/OTP");
-        jfieldID fidOtp = env->GetFieldID(clsOTP, "otp", "Ljava/lang/String;");
-        jfieldID fidExpireTime = env->GetFieldID(clsOTP, "expireTime", "J");
-        jfieldID fidTtlSeconds = env->GetFieldID(clsOTP, "ttlSeconds", "I");
-        jfieldID fidNowTime = env->GetFieldID(clsOTP, "nowTime", "J");
-        jfieldID fidStatus = env->GetFieldID(clsOTP, "status", "Lcom/miracl/mpinsdk/model/Status;");
-        env->SetObjectField(jotp, fidOtp, env->NewStringUTF(otp.otp.c_str()));
-        env->SetLongField(jotp, fidExpireTime, otp.expireTime);
-        env->SetIntField(jotp, fidTtlSeconds, otp.ttlSeconds);
-        env->SetLongField(jotp, fidNowTime, otp.nowTime);
-        env->SetObjectField(jotp, fidStatus, MakeJavaStatus(env, otp.status));
+        env->PushLocalFrame(4);
+        env->CallVoidMethod(jotp, JNI_getRegistry().otp.midSet,
+                env->NewStringUTF(otp.otp.c_str()),
+                (jlong) otp.expireTime,
+                (jint) otp.ttlSeconds,
+                (jlong) otp.nowTime,
+                MakeJavaStatus(env, otp.status));
+        env->PopLocalFrame(NULL);
     }
 
     return MakeJavaStatus(env, status);
@@ -439,20 +435,15 @@ static jobject Sign(JNIEnv *env, jobject jobj, jlong jptr, jobject juser, jbyteA
 
     if(status == MfaSDK::Status::OK)
     {
-        jclass clsSignature = env->FindClass("com/miracl/mpinsdk/model/Signature");
-        jfieldID fidHash = env->GetFieldID(clsSignature, "hash", "[B");
-        jfieldID fidMpinId = env->GetFieldID(clsSignature, "mpinId", "[B");
-        jfieldID fidU = env->GetFieldID(clsSignature, "u", "[B");
-        jfieldID fidV = env->GetFieldID(clsSignature, "v", "[B");
-        jfieldID fidPublicKey = env->GetFieldID(clsSignature, "publicKey", "[B");
-        jfieldID fidDtas = env->GetFieldID(clsSignature, "dtas", "[B");
-
-        env->SetObjectField(jsignature, fidHash, StdStringToJavaByteArray(env, signature.hash));
-        env->SetObjectField(jsignature, fidMpinId, StdStringToJavaByteArray(env, signature.mpinId));
-        env->SetObjectField(jsignature, fidU, StdStringToJavaByteArray(env, signature.u));
-        env->SetObjectField(jsignature, fidV, StdStringToJavaByteArray(env, signature.v));
-        env->SetObjectField(jsignature, fidPublicKey, StdStringToJavaByteArray(env, signature.publicKey));
-        env->SetObjectField(jsignature, fidDtas, StdStringToJavaByteArray(env, signature.dtas));
+        env->PushLocalFrame(6);
+        env->CallVoidMethod(jsignature, JNI_getRegistry().signature.midSet,
+                StdStringToJavaByteArray(env, signature.hash),
+                StdStringToJavaByteArray(env, signature.mpinId),
+                StdStringToJavaByteArray(env, signature.u),
+                StdStringToJavaByteArray(env, signature.v),
+                StdStringToJavaByteArray(env, signature.publicKey),
+                StdStringToJavaByteArray(env, signature.dtas));
+        env->PopLocalFrame(NULL);
     }
 
     return MakeJavaStatus(env, status);
@@ -472,6 +463,24 @@ static jobject nSignMultiFactor(JNIEnv *env, jobject jobj, jlong jptr, jobject j
                 JavaStringArrayToMultiFactor(env, jMultiFactor), jepochTime, jsignature);
 }
 
+// Number of users wrapped in Java objects within a single local reference frame
+static const size_t LIST_USERS_BATCH_SIZE = 32;
+
+static void AddJavaUsers(JNIEnv* env, jobject jusersList, const std::vector<MPinSDKBase::UserPtr>& users, size_t begin, size_t end)
+{
+    const JNIRegistry& jni = JNI_getRegistry();
+    for (size_t batch = begin; batch < end; batch += LIST_USERS_BATCH_SIZE) {
+        size_t batchEnd = std::min(end, batch + LIST_USERS_BATCH_SIZE);
+        if (env->PushLocalFrame((jint) (batchEnd - batch)) < 0) {
+            return;
+        }
+        for (size_t i = batch; i < batchEnd; ++i) {
+            env->CallBooleanMethod(jusersList, jni.list.midAdd, MakeJavaUser(env, users[i]));
+        }
+        env->PopLocalFrame(NULL);
+    }
+}
+
 static jobject nListUsers(JNIEnv* env, jobject jobj, jlong jptr, jobject jusersList)
 {
 	MfaSDK* sdk = (MfaSDK*) jptr;
@@ -480,17 +489,127 @@ static jobject nListUsers(JNIEnv* env, jobject jobj, jlong jptr, jobject jusersL
 
     if(status == MfaSDK::Status::OK)
     {
-        jclass clsList = env->FindClass("java/util/List");
-        jmethodID midAdd = env->GetMethodID(clsList, "add", "(Ljava/lang/Object;)Z");
+        AddJavaUsers(env, jusersList, users, 0, users.size());
+    }
+
+    return MakeJavaStatus(env,status);
+}
+
+static jobject nListUsersPage(JNIEnv* env, jobject jobj, jlong jptr, jint joffset, jint jlimit, jobject jusersList)
+{
+	MfaSDK* sdk = (MfaSDK*) jptr;
+	std::vector<MPinSDKBase::UserPtr> users;
+	MfaSDK::Status status = sdk->ListUsers(users);
+
+    if(status == MfaSDK::Status::OK)
+    {
+        size_t begin = std::min(users.size(), (size_t) joffset);
+        size_t end = std::min(users.size(), begin + (size_t) jlimit);
+        AddJavaUsers(env, jusersList, users, begin, end);
+    }
 
-        jclass clsUser = env->FindClass("com/miracl/mpinsdk/model/User");
-        jmethodID ctorUser = env->GetMethodID(clsUser, "<init>", "(J)V");
+    return MakeJavaStatus(env,status);
+}
 
-        for (std::vector<MPinSDKBase::UserPtr>::iterator i = users.begin(); i != users.end(); ++i) {
-            MPinSDKBase::UserPtr user = *i;
-            jobject juser = env->NewObject(clsUser, ctorUser, (jlong) new MPinSDKBase::UserPtr(user));
-            env->CallBooleanMethod(jusersList, midAdd, juser);
+// Walks a single snapshot of the users, so the walk is linear in their number and isn't shifted by users added or
+// removed meanwhile. Java objects are created only for the visited users, one batch of local references at a time.
+static jobject nVisitUsers(JNIEnv* env, jobject jobj, jlong jptr, jobject jvisitor)
+{
+	MfaSDK* sdk = (MfaSDK*) jptr;
+	std::vector<MPinSDKBase::UserPtr> users;
+	MfaSDK::Status status = sdk->ListUsers(users);
+
+    if(status == MfaSDK::Status::OK)
+    {
+        const JNIRegistry& jni = JNI_getRegistry();
+        bool visiting = true;
+        for (size_t batch = 0; visiting && batch < users.size(); batch += LIST_USERS_BATCH_SIZE) {
+            size_t batchEnd = std::min(users.size(), batch + LIST_USERS_BATCH_SIZE);
+            if (env->PushLocalFrame((jint) (batchEnd - batch)) < 0) {
+                return NULL;
+            }
+            for (size_t i = batch; visiting && i < batchEnd; ++i) {
+                jboolean next = env->CallBooleanMethod(jvisitor, jni.userVisitor.midVisit, MakeJavaUser(env, users[i]));
+                visiting = next == JNI_TRUE && !env->ExceptionCheck();
+            }
+            env->PopLocalFrame(NULL);
+        }
+        if (env->ExceptionCheck()) {
+            // Let the exception thrown by the visitor propagate
+            return NULL;
+        }
+    }
+
+    return MakeJavaStatus(env,status);
+}
+
+// Matches the users against the criteria passed from Java, where an empty string or a negative state matches any user
+class UserFilter
+{
+public:
+    UserFilter(const std::string& backend, const std::string& customerId, const std::string& appId, int state)
+        : m_backend(backend), m_customerId(customerId), m_appId(appId), m_state(state)
+    {
+    }
+
+    bool operator()(const MPinSDKBase::UserPtr& user) const
+    {
+        if (!m_backend.empty() && !EqualsIgnoreCase(user->GetBackend(), m_backend)) {
+            return false;
+        }
+        if (!m_customerId.empty() && user->GetCustomerId() != m_customerId) {
+            return false;
+        }
+        if (!m_appId.empty() && user->GetAppId() != m_appId) {
+            return false;
+        }
+        return m_state < 0 || user->GetState() == m_state;
+    }
+
+private:
+    static bool EqualsIgnoreCase(const std::string& a, const std::string& b)
+    {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (size_t i = 0; i < a.size(); ++i) {
+            if (tolower((unsigned char) a[i]) != tolower((unsigned char) b[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    std::string m_backend;
+    std::string m_customerId;
+    std::string m_appId;
+    int m_state;
+};
+
+static std::string OptionalJavaToStdString(JNIEnv* env, jstring jstr)
+{
+    return jstr != NULL ? JavaToStdString(env, jstr) : std::string();
+}
+
+static jobject nListUsersFiltered(JNIEnv* env, jobject jobj, jlong jptr, jstring jbackend, jstring jcustomerId, jstring jappId,
+                                  jint jstate, jobject jusersList)
+{
+	MfaSDK* sdk = (MfaSDK*) jptr;
+	std::vector<MPinSDKBase::UserPtr> users;
+	MfaSDK::Status status = sdk->ListUsers(users);
+
+    if(status == MfaSDK::Status::OK)
+    {
+        // Only the matching users get Java objects
+        UserFilter filter(OptionalJavaToStdString(env, jbackend), OptionalJavaToStdString(env, jcustomerId),
+                OptionalJavaToStdString(env, jappId), jstate);
+        std::vector<MPinSDKBase::UserPtr> matching;
+        for (std::vector<MPinSDKBase::UserPtr>::const_iterator i = users.begin(); i != users.end(); ++i) {
+            if (filter(*i)) {
+                matching.push_back(*i);
+            }
         }
+        AddJavaUsers(env, jusersList, matching, 0, matching.size());
     }
 
     return MakeJavaStatus(env,status);
@@ -507,8 +626,9 @@ static JNINativeMethod g_methodsMfaSDK[] =
 {
     NATIVE_METHOD(nConstruct, "()J"),
     NATIVE_METHOD(nDestruct, "(J)V"),
-    NATIVE_METHOD(nInit, "(JLjava/util/Map;Landroid/content/Context;)Lcom/miracl/mpinsdk/model/Status;"),
-    NATIVE_METHOD(nAddCustomHeaders, "(JLjava/util/Map;)V"),
+    NATIVE_METHOD(nGetNativeCounters, "()[J"),
+    NATIVE_METHOD(nInit, "(J[BLandroid/content/Context;)Lcom/miracl/mpinsdk/model/Status;"),
+    NATIVE_METHOD(nAddCustomHeaders, "(J[B)V"),
     NATIVE_METHOD(nClearCustomHeaders, "(J)V"),
     NATIVE_METHOD(nAddTrustedDomain, "(JLjava/lang/String;)V"),
     NATIVE_METHOD(nClearTrustedDomains, "(J)V"),
@@ -549,6 +669,9 @@ static JNINativeMethod g_methodsMfaSDK[] =
     NATIVE_METHOD(nSign, "(JLcom/miracl/mpinsdk/model/User;[BLjava/lang/String;ILcom/miracl/mpinsdk/model/Signature;)Lcom/miracl/mpinsdk/model/Status;"),
     NATIVE_METHOD(nSignMultiFactor, "(JLcom/miracl/mpinsdk/model/User;[B[Ljava/lang/String;ILcom/miracl/mpinsdk/model/Signature;)Lcom/miracl/mpinsdk/model/Status;"),
     NATIVE_METHOD(nListUsers, "(JLjava/util/List;)Lcom/miracl/mpinsdk/model/Status;"),
+    NATIVE_METHOD(nListUsersPage, "(JIILjava/util/List;)Lcom/miracl/mpinsdk/model/Status;"),
+    NATIVE_METHOD(nVisitUsers, "(JLcom/miracl/mpinsdk/MPinMFA$UserVisitor;)Lcom/miracl/mpinsdk/model/Status;"),
+    NATIVE_METHOD(nListUsersFiltered, "(JLjava/lang/String;Ljava/lang/String;Ljava/lang/String;ILjava/util/List;)Lcom/miracl/mpinsdk/model/Status;"),
     NATIVE_METHOD(nSetRegistrationToken, "(JLcom/miracl/mpinsdk/model/User;Ljava/lang/String;)Lcom/miracl/mpinsdk/model/Status;"),
     NATIVE_METHOD(nIsRegistrationTokenSet, "(JLcom/miracl/mpinsdk/model/User;)Z"),
     NATIVE_METHOD(nHashDocument, "(J[B)[B")
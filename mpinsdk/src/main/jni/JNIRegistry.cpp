@@ -0,0 +1,140 @@
+/***************************************************************
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ***************************************************************/
+
+#include "JNIRegistry.h"
+#include "NativeStats.h"
+
+static JNIRegistry g_registry;
+
+static jclass findClass(JNIEnv* env, const char* name, bool& ok)
+{
+	if(!ok)
+	{
+		return NULL;
+	}
+
+	jclass cls = env->FindClass(name);
+	if(cls == NULL)
+	{
+		ok = false;
+		return NULL;
+	}
+
+	jclass globalCls = reinterpret_cast<jclass>(env->NewGlobalRef(cls));
+	stats::Increment(stats::GLOBAL_REFS);
+	env->DeleteLocalRef(cls);
+	return globalCls;
+}
+
+static jmethodID getMethodID(JNIEnv* env, jclass cls, const char* name, const char* signature, bool& ok)
+{
+	if(!ok)
+	{
+		return NULL;
+	}
+
+	jmethodID mid = env->GetMethodID(cls, name, signature);
+	ok = mid != NULL;
+	return mid;
+}
+
+static jfieldID getFieldID(JNIEnv* env, jclass cls, const char* name, const char* signature, bool& ok)
+{
+	if(!ok)
+	{
+		return NULL;
+	}
+
+	jfieldID fid = env->GetFieldID(cls, name, signature);
+	ok = fid != NULL;
+	return fid;
+}
+
+bool InitJNIRegistry(JNIEnv* env)
+{
+	bool ok = true;
+	JNIRegistry& r = g_registry;
+
+	r.list.cls = findClass(env, "java/util/List", ok);
+	r.list.midAdd = getMethodID(env, r.list.cls, "add", "(Ljava/lang/Object;)Z", ok);
+
+	r.userVisitor.cls = findClass(env, "com/miracl/mpinsdk/MPinMFA$UserVisitor", ok);
+	r.userVisitor.midVisit = getMethodID(env, r.userVisitor.cls, "visit", "(Lcom/miracl/mpinsdk/model/User;)Z", ok);
+
+	r.stringBuilder.cls = findClass(env, "java/lang/StringBuilder", ok);
+	r.stringBuilder.midSetLength = getMethodID(env, r.stringBuilder.cls, "setLength", "(I)V", ok);
+	r.stringBuilder.midReplace = getMethodID(env, r.stringBuilder.cls, "replace", "(IILjava/lang/String;)Ljava/lang/StringBuilder;", ok);
+
+	r.status.cls = findClass(env, "com/miracl/mpinsdk/model/Status", ok);
+	r.status.ctor = getMethodID(env, r.status.cls, "<init>", "(ILjava/lang/String;)V", ok);
+
+	r.user.cls = findClass(env, "com/miracl/mpinsdk/model/User", ok);
+	r.user.ctor = getMethodID(env, r.user.cls, "<init>", "(J)V", ok);
+	r.user.fidPtr = getFieldID(env, r.user.cls, "mPtr", "J", ok);
+
+	r.userSnapshot.cls = findClass(env, "com/miracl/mpinsdk/model/UserSnapshot", ok);
+	r.userSnapshot.ctor = getMethodID(env, r.userSnapshot.cls, "<init>", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;ILjava/lang/String;IZ)V", ok);
+
+	r.expiration.cls = findClass(env, "com/miracl/mpinsdk/model/Expiration", ok);
+	r.expiration.fidExpireTimeSeconds = getFieldID(env, r.expiration.cls, "expireTimeSeconds", "I", ok);
+	r.expiration.fidNowTimeSeconds = getFieldID(env, r.expiration.cls, "nowTimeSeconds", "I", ok);
+
+	r.serviceDetails.cls = findClass(env, "com/miracl/mpinsdk/model/ServiceDetails", ok);
+	r.serviceDetails.midSet = getMethodID(env, r.serviceDetails.cls, "set", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;)V", ok);
+
+	r.sessionDetails.cls = findClass(env, "com/miracl/mpinsdk/model/SessionDetails", ok);
+	r.sessionDetails.midSet = getMethodID(env, r.sessionDetails.cls, "set", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Z)V", ok);
+
+	r.verificationResult.cls = findClass(env, "com/miracl/mpinsdk/model/VerificationResult", ok);
+	r.verificationResult.midSet = getMethodID(env, r.verificationResult.cls, "set", "(Ljava/lang/String;Ljava/lang/String;J)V", ok);
+
+	r.otp.cls = findClass(env, "com/miracl/mpinsdk/model/OTP", ok);
+	r.otp.midSet = getMethodID(env, r.otp.cls, "set", "(Ljava/lang/String;JIJLcom/miracl/mpinsdk/model/Status;)V", ok);
+
+	r.signature.cls = findClass(env, "com/miracl/mpinsdk/model/Signature", ok);
+	r.signature.midSet = getMethodID(env, r.signature.cls, "set", "([B[B[B[B[B[B)V", ok);
+
+	r.httpConnector.cls = findClass(env, "com/miracl/mpinsdk/net/HTTPConnector", ok);
+	r.httpConnector.ctor = getMethodID(env, r.httpConnector.cls, "<init>", "()V", ok);
+	r.httpConnector.midSetHeaders = getMethodID(env, r.httpConnector.cls, "SetHeaders", "([B)V", ok);
+	r.httpConnector.midSetQueryParams = getMethodID(env, r.httpConnector.cls, "SetQueryParams", "([B)V", ok);
+	r.httpConnector.midSetContent = getMethodID(env, r.httpConnector.cls, "SetContent", "(Ljava/lang/String;)V", ok);
+	r.httpConnector.midSetTimeout = getMethodID(env, r.httpConnector.cls, "SetTimeout", "(I)V", ok);
+	r.httpConnector.midExecute = getMethodID(env, r.httpConnector.cls, "Execute", "(ILjava/lang/String;)Z", ok);
+	r.httpConnector.midReset = getMethodID(env, r.httpConnector.cls, "Reset", "()V", ok);
+	r.httpConnector.fidStatusCode = getFieldID(env, r.httpConnector.cls, "statusCode", "I", ok);
+	r.httpConnector.fidResponseHeaders = getFieldID(env, r.httpConnector.cls, "responseHeaders", "[B", ok);
+	r.httpConnector.fidResponseBody = getFieldID(env, r.httpConnector.cls, "responseBody", "Ljava/nio/ByteBuffer;", ok);
+	r.httpConnector.fidResponseLength = getFieldID(env, r.httpConnector.cls, "responseLength", "I", ok);
+	r.httpConnector.fidErrorMessage = getFieldID(env, r.httpConnector.cls, "errorMessage", "Ljava/lang/String;", ok);
+
+	r.storage.cls = findClass(env, "com/miracl/mpinsdk/storage/Storage", ok);
+	r.storage.ctor = getMethodID(env, r.storage.cls, "<init>", "(Landroid/content/Context;Z)V", ok);
+	r.storage.midSetData = getMethodID(env, r.storage.cls, "SetData", "(Ljava/lang/String;)Z", ok);
+	r.storage.midGetData = getMethodID(env, r.storage.cls, "GetData", "()Ljava/lang/String;", ok);
+	r.storage.midClearData = getMethodID(env, r.storage.cls, "ClearData", "()Z", ok);
+	r.storage.midGetErrorMessage = getMethodID(env, r.storage.cls, "GetErrorMessage", "()Ljava/lang/String;", ok);
+
+	return ok;
+}
+
+const JNIRegistry& JNI_getRegistry()
+{
+	return g_registry;
+}
@@ -0,0 +1,141 @@
+/***************************************************************
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ***************************************************************/
+
+#ifndef _JNI_REGISTRY_H_
+#define _JNI_REGISTRY_H_
+
+#include <jni.h>
+
+/*
+ * Classes, method and field IDs used by the JNI glue. They are resolved once in JNI_OnLoad and the classes are held as
+ * global references, so the glue never looks them up while serving a call.
+ */
+struct JNIRegistry
+{
+	struct
+	{
+		jclass cls;
+		jmethodID midAdd;
+	} list;
+
+	struct
+	{
+		jclass cls;
+		jmethodID midVisit;
+	} userVisitor;
+
+	struct
+	{
+		jclass cls;
+		jmethodID midSetLength;
+		jmethodID midReplace;
+	} stringBuilder;
+
+	struct
+	{
+		jclass cls;
+		jmethodID ctor;
+	} status;
+
+	struct
+	{
+		jclass cls;
+		jmethodID ctor;
+		jfieldID fidPtr;
+	} user;
+
+	struct
+	{
+		jclass cls;
+		jmethodID ctor;
+	} userSnapshot;
+
+	struct
+	{
+		jclass cls;
+		jfieldID fidExpireTimeSeconds;
+		jfieldID fidNowTimeSeconds;
+	} expiration;
+
+	struct
+	{
+		jclass cls;
+		jmethodID midSet;
+	} serviceDetails;
+
+	struct
+	{
+		jclass cls;
+		jmethodID midSet;
+	} sessionDetails;
+
+	struct
+	{
+		jclass cls;
+		jmethodID midSet;
+	} verificationResult;
+
+	struct
+	{
+		jclass cls;
+		jmethodID midSet;
+	} otp;
+
+	struct
+	{
+		jclass cls;
+		jmethodID midSet;
+	} signature;
+
+	struct
+	{
+		jclass cls;
+		jmethodID ctor;
+		jmethodID midSetHeaders;
+		jmethodID midSetQueryParams;
+		jmethodID midSetContent;
+		jmethodID midSetTimeout;
+		jmethodID midExecute;
+		jmethodID midReset;
+		jfieldID fidStatusCode;
+		jfieldID fidResponseHeaders;
+		jfieldID fidResponseBody;
+		jfieldID fidResponseLength;
+		jfieldID fidErrorMessage;
+	} httpConnector;
+
+	struct
+	{
+		jclass cls;
+		jmethodID ctor;
+		jmethodID midSetData;
+		jmethodID midGetData;
+		jmethodID midClearData;
+		jmethodID midGetErrorMessage;
+	} storage;
+};
+
+/*
+ * Resolve all registry entries. Returns false if any of them is missing, with a pending Java exception.
+ */
+bool InitJNIRegistry(JNIEnv* env);
+
+const JNIRegistry& JNI_getRegistry();
+
+#endif // _JNI_REGISTRY_H_
@@ -21,81 +21,47 @@
 #include "JNICommon.h"
 
 
-static void nDestruct(JNIEnv *env, jobject jobj, jlong jptr) {
-    delete (MPinSDKBase::UserPtr *) jptr;
+static void nDestruct(JNIEnv *env, jclass jcls, jlong jptr) {
+    MPinSDKBase::UserPtr *userPtr = (MPinSDKBase::UserPtr *) jptr;
+    if (userPtr != NULL) {
+        stats::Decrement(stats::USER_HANDLES);
+    }
+    delete userPtr;
 }
 
-static jstring nGetId(JNIEnv *env, jobject jobj, jlong jptr) {
-    const MPinSDKBase::UserPtr *userPtr = (const MPinSDKBase::UserPtr *) jptr;
-    return env->NewStringUTF(userPtr->get()->GetId().c_str());
+static jobject nGetSnapshot(JNIEnv *env, jobject jobj, jlong jptr) {
+    const MPinSDKBase::User *user = ((const MPinSDKBase::UserPtr *) jptr)->get();
+    const JNIRegistry &jni = JNI_getRegistry();
+
+    env->PushLocalFrame(6);
+    jobject jsnapshot = env->NewObject(jni.userSnapshot.cls, jni.userSnapshot.ctor,
+                                       env->NewStringUTF(user->GetId().c_str()),
+                                       env->NewStringUTF(user->GetBackend().c_str()),
+                                       env->NewStringUTF(user->GetCustomerId().c_str()),
+                                       env->NewStringUTF(user->GetAppId().c_str()),
+                                       env->NewStringUTF(user->GetMPinId().c_str()),
+                                       (jint) user->GetState(),
+                                       env->NewStringUTF(user->GetVerificationType().c_str()),
+                                       (jint) user->GetPinLength(),
+                                       (jboolean) user->CanSign());
+    return env->PopLocalFrame(jsnapshot);
 }
 
 static void nGetRegistrationExpiration(JNIEnv *env, jobject jobj, jlong jptr, jobject jexpiration) {
     const MPinSDKBase::UserPtr *userPtr = (const MPinSDKBase::UserPtr *) jptr;
     MPinSDKBase::Expiration expiration = userPtr->get()->GetRegistrationExpiration();
 
-    jclass clsExpiration = env->FindClass("com/miracl/mpinsdk/model/Expiration");
-    jfieldID fidExpireTimeSeconds = env->GetFieldID(clsExpiration, "expireTimeSeconds", "I");
-    jfieldID fidNowTimeSeconds = env->GetFieldID(clsExpiration, "nowTimeSeconds", "I");
-
-    env->SetIntField(jexpiration, fidExpireTimeSeconds, expiration.expireTimeSeconds);
-    env->SetIntField(jexpiration, fidNowTimeSeconds, expiration.nowTimeSeconds);
-}
-
-static jint nGetState(JNIEnv *env, jobject jobj, jlong jptr) {
-    const MPinSDKBase::UserPtr *userPtr = (const MPinSDKBase::UserPtr *) jptr;
-    return userPtr->get()->GetState();
-}
-
-static jstring nGetVerificationType(JNIEnv *env, jobject jobj, jlong jptr) {
-    const MPinSDKBase::UserPtr *userPtr = (const MPinSDKBase::UserPtr *) jptr;
-    return env->NewStringUTF(userPtr->get()->GetVerificationType().c_str());
-}
-
-static jstring nGetBackend(JNIEnv *env, jobject jobj, jlong jptr) {
-    const MPinSDKBase::UserPtr *userPtr = (const MPinSDKBase::UserPtr *) jptr;
-    return env->NewStringUTF(userPtr->get()->GetBackend().c_str());
-}
-
-static jstring nGetCustomerId(JNIEnv *env, jobject jobj, jlong jptr) {
-    const MPinSDKBase::UserPtr *userPtr = (const MPinSDKBase::UserPtr *) jptr;
-    return env->NewStringUTF(userPtr->get()->GetCustomerId().c_str());
-}
-
-static jstring nGetAppId(JNIEnv *env, jobject jobj, jlong jptr) {
-    const MPinSDKBase::UserPtr *userPtr = (const MPinSDKBase::UserPtr *) jptr;
-    return env->NewStringUTF(userPtr->get()->GetAppId().c_str());
-}
-
-static jstring nGetMPinId(JNIEnv *env, jobject jobj, jlong jptr) {
-    const MPinSDKBase::UserPtr *userPtr = (const MPinSDKBase::UserPtr *) jptr;
-    return env->NewStringUTF(userPtr->get()->GetMPinId().c_str());
-}
-
-static jboolean nCanSign(JNIEnv *env, jobject jobj, jlong jptr) {
-    const MPinSDKBase::UserPtr *userPtr = (const MPinSDKBase::UserPtr *) jptr;
-    return (jboolean) userPtr->get()->CanSign();
-}
-
-static jint nGetPinLength(JNIEnv *env, jobject jobj, jlong jptr) {
-    const MPinSDKBase::UserPtr *userPtr = (const MPinSDKBase::UserPtr *) jptr;
-    return (jint) userPtr->get()->GetPinLength();
+    const JNIRegistry& jni = JNI_getRegistry();
+    env->SetIntField(jexpiration, jni.expiration.fidExpireTimeSeconds, expiration.expireTimeSeconds);
+    env->SetIntField(jexpiration, jni.expiration.fidNowTimeSeconds, expiration.nowTimeSeconds);
 }
 
 static JNINativeMethod g_methodsUser[] =
         {
                 NATIVE_METHOD(nDestruct, "(J)V"),
-                NATIVE_METHOD(nGetId, "(J)Ljava/lang/String;"),
+                NATIVE_METHOD(nGetSnapshot, "(J)Lcom/miracl/mpinsdk/model/UserSnapshot;"),
                 NATIVE_METHOD(nGetRegistrationExpiration,
-                              "(JLcom/miracl/mpinsdk/model/Expiration;)V"),
-                NATIVE_METHOD(nGetState, "(J)I"),
-                NATIVE_METHOD(nGetVerificationType, "(J)Ljava/lang/String;"),
-                NATIVE_METHOD(nGetBackend, "(J)Ljava/lang/String;"),
-                NATIVE_METHOD(nGetCustomerId, "(J)Ljava/lang/String;"),
-                NATIVE_METHOD(nGetMPinId, "(J)Ljava/lang/String;"),
-                NATIVE_METHOD(nGetAppId, "(J)Ljava/lang/String;"),
-                NATIVE_METHOD(nCanSign, "(J)Z"),
-                NATIVE_METHOD(nGetPinLength, "(J)I")
+                              "(JLcom/miracl/mpinsdk/model/Expiration;)V")
         };
 
 void RegisterUserJNI(JNIEnv *env) {
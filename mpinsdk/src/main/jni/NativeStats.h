@@ -0,0 +1,57 @@
+/***************************************************************
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ ***************************************************************/
+
+#ifndef _NATIVE_STATS_H_
+#define _NATIVE_STATS_H_
+
+/*
+ * Process-wide counters of the native resources held by the SDK, exposed through MPinMFA.getNativeDiagnostics()
+ */
+namespace stats
+{
+
+// The order matches the indexes used by NativeDiagnostics.java
+enum Counter
+{
+	SDK_INSTANCES,
+	USER_HANDLES,
+	GLOBAL_REFS,
+	HTTP_BRIDGES,
+	POOLED_HTTP_BRIDGES,
+	RESPONSE_BUFFER_BYTES,
+	COUNTER_COUNT
+};
+
+void Add(Counter counter, long delta);
+
+inline void Increment(Counter counter)
+{
+	Add(counter, 1);
+}
+
+inline void Decrement(Counter counter)
+{
+	Add(counter, -1);
+}
+
+long Get(Counter counter);
+
+}
+
+#endif // _NATIVE_STATS_H_
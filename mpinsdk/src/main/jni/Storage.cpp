@@ -29,33 +29,33 @@ namespace store {
 
     Storage::Storage(jobject context, bool isMpinType) {
         JNIEnv *p_jenv = JNI_getJENV();
-        m_pjstorageCls = (jclass) p_jenv->NewGlobalRef(
-                p_jenv->FindClass("com/miracl/mpinsdk/storage/Storage"));
-        const jmethodID midInit = p_jenv->GetMethodID(m_pjstorageCls, "<init>",
-                                                      "(Landroid/content/Context;Z)V");
-        m_pjstorage = p_jenv->NewGlobalRef(
-                p_jenv->NewObject(m_pjstorageCls, midInit, context, isMpinType));
-
+        const JNIRegistry &jni = JNI_getRegistry();
+        jobject jstorage = p_jenv->NewObject(jni.storage.cls, jni.storage.ctor, context,
+                                             isMpinType);
+        m_pjstorage = p_jenv->NewGlobalRef(jstorage);
+        p_jenv->DeleteLocalRef(jstorage);
+        stats::Increment(stats::GLOBAL_REFS);
     }
 
     void Storage::setErrorMessage() {
         JNIEnv *p_jenv = JNI_getJENV();
-        jclass cls = p_jenv->FindClass("com/miracl/mpinsdk/storage/Storage");
-        const jmethodID midGetErrorMessage = p_jenv->GetMethodID(cls, "GetErrorMessage",
-                                                                 "()Ljava/lang/String;");
         jstring jerror = static_cast<jstring>(p_jenv->CallObjectMethod(m_pjstorage,
-                                                                       midGetErrorMessage));
-        const char *c_error = "";
-        if (jerror) c_error = (char *) p_jenv->GetStringUTFChars(jerror, NULL);
-        m_errorMessage = c_error;
+                                                                       JNI_getRegistry().storage.midGetErrorMessage));
+        m_errorMessage.clear();
+        if (jerror) {
+            const char *c_error = p_jenv->GetStringUTFChars(jerror, NULL);
+            m_errorMessage = c_error;
+            p_jenv->ReleaseStringUTFChars(jerror, c_error);
+            p_jenv->DeleteLocalRef(jerror);
+        }
     }
 
     bool Storage::SetData(const String &data) {
         JNIEnv *p_jenv = JNI_getJENV();
-        const jmethodID midSetData = p_jenv->GetMethodID(m_pjstorageCls, "SetData",
-                                                         "(Ljava/lang/String;)Z");
         jstring jdata = p_jenv->NewStringUTF(data.c_str());
-        bool bresult = p_jenv->CallBooleanMethod(m_pjstorage, midSetData, jdata);
+        bool bresult = p_jenv->CallBooleanMethod(m_pjstorage,
+                                                 JNI_getRegistry().storage.midSetData, jdata);
+        p_jenv->DeleteLocalRef(jdata);
         if (!bresult) {
             setErrorMessage();
         }
@@ -64,9 +64,8 @@ namespace store {
 
     bool Storage::GetData(String &data) {
         JNIEnv *p_jenv = JNI_getJENV();
-        const jmethodID midGetData = p_jenv->GetMethodID(m_pjstorageCls, "GetData",
-                                                         "()Ljava/lang/String;");
-        jstring jreadData = (jstring) p_jenv->CallObjectMethod(m_pjstorage, midGetData);
+        jstring jreadData = (jstring) p_jenv->CallObjectMethod(m_pjstorage,
+                                                               JNI_getRegistry().storage.midGetData);
         if (jreadData == NULL) {
             setErrorMessage();
             return false;
@@ -74,15 +73,13 @@ namespace store {
         const char *c_data = (char *) p_jenv->GetStringUTFChars(jreadData, NULL);
         data.append(c_data);
         p_jenv->ReleaseStringUTFChars(jreadData, c_data);
+        p_jenv->DeleteLocalRef(jreadData);
         return true;
     }
 
     bool Storage::ClearData() {
         JNIEnv *p_jenv = JNI_getJENV();
-        const jmethodID midClearData = p_jenv->GetMethodID(m_pjstorageCls, "ClearData",
-                                                           "()Z");
-
-        return p_jenv->CallBooleanMethod(m_pjstorage, midClearData);
+        return p_jenv->CallBooleanMethod(m_pjstorage, JNI_getRegistry().storage.midClearData);
     }
 
     const String &Storage::GetErrorMessage() const { return m_errorMessage; }
@@ -92,7 +89,6 @@ namespace store {
         if (p_jenv == NULL) {
             return;
         }
-        RELEASE_JNIREF(p_jenv, m_pjstorageCls)
         RELEASE_JNIREF(p_jenv, m_pjstorage)
     }
 
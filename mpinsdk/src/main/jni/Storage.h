@@ -42,8 +42,6 @@ class Storage: public IStorage {
 		virtual const String& GetErrorMessage() const;
 		virtual ~Storage();
 	private:
-		// JNI CLASES ::
-		jclass m_pjstorageCls;
 		// JNI OBJECTS ::
 		jobject m_pjstorage;
 		// C++ Member variables
@@ -0,0 +1,325 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk;
+
+
+import android.os.SystemClock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+@RunWith(RobolectricTestRunner.class)
+public class OperationSchedulerTest {
+
+    private static final long AGING_INTERVAL_MS = 1000;
+    private static final long WAIT_SECONDS      = 5;
+
+    private OperationScheduler mScheduler;
+    private List<String>       mOrder;
+    private CountDownLatch     mGateStarted;
+    private CountDownLatch     mGateReleased;
+
+    @Before
+    public void setUp() {
+        mScheduler = new OperationScheduler(2, 0, AGING_INTERVAL_MS);
+        mOrder = Collections.synchronizedList(new ArrayList<String>());
+        mGateStarted = new CountDownLatch(1);
+        mGateReleased = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() {
+        mGateReleased.countDown();
+        mScheduler.shutdown("shutdown", new Runnable() {
+
+            @Override
+            public void run() {
+            }
+        });
+    }
+
+    @Test
+    public void writesRunInScheduleOrder() throws Exception {
+        blockWriter();
+        for (int i = 0; i < 5; i++) {
+            record(OperationScheduler.Access.WRITE, MPinMfaAsync.Priority.NORMAL, "write" + i);
+        }
+        CountDownLatch done = await(OperationScheduler.Access.WRITE, MPinMfaAsync.Priority.NORMAL);
+
+        mGateReleased.countDown();
+        assertTrue(done.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("write0", "write1", "write2", "write3", "write4"), mOrder);
+    }
+
+    @Test
+    public void readWaitsForEarlierWrite() throws Exception {
+        final AtomicBoolean written = new AtomicBoolean();
+        final AtomicBoolean seen = new AtomicBoolean();
+        final CountDownLatch done = new CountDownLatch(1);
+        blockWriter();
+        mScheduler.execute(OperationScheduler.Access.WRITE, MPinMfaAsync.Priority.NORMAL, "write", new Runnable() {
+
+            @Override
+            public void run() {
+                written.set(true);
+            }
+        }, null);
+        mScheduler.execute(OperationScheduler.Access.READ, MPinMfaAsync.Priority.INTERACTIVE, "read", new Runnable() {
+
+            @Override
+            public void run() {
+                seen.set(written.get());
+                done.countDown();
+            }
+        }, null);
+
+        assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+        mGateReleased.countDown();
+        assertTrue(done.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(seen.get());
+    }
+
+    @Test
+    public void readsRunConcurrently() throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        final CountDownLatch done = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            mScheduler.execute(OperationScheduler.Access.READ, MPinMfaAsync.Priority.NORMAL, "read", new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        barrier.await(WAIT_SECONDS, TimeUnit.SECONDS);
+                        done.countDown();
+                    } catch (Exception e) {
+                        // The other reader didn't run at the same time
+                    }
+                }
+            }, null);
+        }
+
+        assertTrue(done.await(WAIT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void higherPriorityRunsFirst() throws Exception {
+        blockWriter();
+        record(OperationScheduler.Access.WRITE, MPinMfaAsync.Priority.BACKGROUND, "background");
+        record(OperationScheduler.Access.WRITE, MPinMfaAsync.Priority.NORMAL, "normal");
+        record(OperationScheduler.Access.WRITE, MPinMfaAsync.Priority.INTERACTIVE, "interactive");
+        CountDownLatch done = await(OperationScheduler.Access.WRITE, MPinMfaAsync.Priority.BACKGROUND);
+
+        mGateReleased.countDown();
+        assertTrue(done.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("interactive", "normal", "background"), mOrder);
+    }
+
+    @Test
+    public void agedOperationRunsBeforeNewerHigherPriority() throws Exception {
+        blockWriter();
+        record(OperationScheduler.Access.WRITE, MPinMfaAsync.Priority.BACKGROUND, "background");
+        // Not yet aged by two intervals, so the newer operation still goes first
+        SystemClock.sleep(AGING_INTERVAL_MS + AGING_INTERVAL_MS / 2);
+        record(OperationScheduler.Access.WRITE, MPinMfaAsync.Priority.INTERACTIVE, "early");
+        SystemClock.sleep(AGING_INTERVAL_MS);
+        record(OperationScheduler.Access.WRITE, MPinMfaAsync.Priority.INTERACTIVE, "late");
+        CountDownLatch done = await(OperationScheduler.Access.WRITE, MPinMfaAsync.Priority.BACKGROUND);
+
+        mGateReleased.countDown();
+        assertTrue(done.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("early", "background", "late"), mOrder);
+    }
+
+    @Test
+    public void followUpRunsInlineAfterItsOperation() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch queued = new CountDownLatch(1);
+        final String[] threads = new String[2];
+        mScheduler.execute(OperationScheduler.Access.WRITE, MPinMfaAsync.Priority.NORMAL, "first", new Runnable() {
+
+            @Override
+            public void run() {
+                threads[0] = Thread.currentThread().getName();
+                started.countDown();
+                try {
+                    queued.await(WAIT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                mOrder.add("first");
+                OperationScheduler.runChained(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        mScheduler.execute(OperationScheduler.Access.WRITE, MPinMfaAsync.Priority.NORMAL, "followUp",
+                          new Runnable() {
+
+                              @Override
+                              public void run() {
+                                  threads[1] = Thread.currentThread().getName();
+                                  mOrder.add("followUp");
+                              }
+                          }, null);
+                    }
+                });
+            }
+        }, null);
+        assertTrue(started.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        record(OperationScheduler.Access.WRITE, MPinMfaAsync.Priority.INTERACTIVE, "queued");
+        CountDownLatch done = await(OperationScheduler.Access.WRITE, MPinMfaAsync.Priority.BACKGROUND);
+
+        queued.countDown();
+        assertTrue(done.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("first", "followUp", "queued"), mOrder);
+        assertEquals(threads[0], threads[1]);
+    }
+
+    @Test
+    public void canceledWriteReleasesWaitingReads() throws Exception {
+        final CountDownLatch canceled = new CountDownLatch(1);
+        blockWriter();
+        OperationHandle write = mScheduler.execute(OperationScheduler.Access.WRITE, MPinMfaAsync.Priority.NORMAL, "write",
+          new Runnable() {
+
+              @Override
+              public void run() {
+                  mOrder.add("write");
+              }
+          }, new Runnable() {
+
+              @Override
+              public void run() {
+                  canceled.countDown();
+              }
+          });
+        CountDownLatch read = await(OperationScheduler.Access.READ, MPinMfaAsync.Priority.NORMAL);
+
+        assertTrue(write.cancel());
+        assertEquals(0, canceled.getCount());
+        assertTrue(write.isCanceled());
+        assertTrue(write.isDone());
+        assertFalse(write.cancel());
+
+        mGateReleased.countDown();
+        assertTrue(read.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(mOrder.isEmpty());
+    }
+
+    @Test
+    public void shutdownCancelsQueuedOperations() throws Exception {
+        final CountDownLatch canceled = new CountDownLatch(2);
+        final CountDownLatch finished = new CountDownLatch(1);
+        Runnable onCanceled = new Runnable() {
+
+            @Override
+            public void run() {
+                canceled.countDown();
+            }
+        };
+        blockWriter();
+        mScheduler.execute(OperationScheduler.Access.WRITE, MPinMfaAsync.Priority.NORMAL, "queued", new Runnable() {
+
+            @Override
+            public void run() {
+                mOrder.add("queued");
+            }
+        }, onCanceled);
+
+        mScheduler.shutdown("final", new Runnable() {
+
+            @Override
+            public void run() {
+                finished.countDown();
+            }
+        });
+        mScheduler.execute(OperationScheduler.Access.READ, MPinMfaAsync.Priority.NORMAL, "late", new Runnable() {
+
+            @Override
+            public void run() {
+                mOrder.add("late");
+            }
+        }, onCanceled);
+
+        assertEquals(0, canceled.getCount());
+        mGateReleased.countDown();
+        assertTrue(finished.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(mOrder.isEmpty());
+    }
+
+    /**
+     * Occupy the writer thread until {@link #mGateReleased} is counted down.
+     */
+    private void blockWriter() throws InterruptedException {
+        mScheduler.execute(OperationScheduler.Access.WRITE, MPinMfaAsync.Priority.INTERACTIVE, "gate", new Runnable() {
+
+            @Override
+            public void run() {
+                mGateStarted.countDown();
+                try {
+                    mGateReleased.await(WAIT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, null);
+        assertTrue(mGateStarted.await(WAIT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private void record(OperationScheduler.Access access, MPinMfaAsync.Priority priority, final String name) {
+        mScheduler.execute(access, priority, name, new Runnable() {
+
+            @Override
+            public void run() {
+                mOrder.add(name);
+            }
+        }, null);
+    }
+
+    /**
+     * @return A latch counted down by an operation scheduled after the others
+     */
+    private CountDownLatch await(OperationScheduler.Access access, MPinMfaAsync.Priority priority) {
+        final CountDownLatch done = new CountDownLatch(1);
+        mScheduler.execute(access, priority, "await", new Runnable() {
+
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        }, null);
+        return done;
+    }
+}
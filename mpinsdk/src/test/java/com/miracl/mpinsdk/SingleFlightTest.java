@@ -0,0 +1,231 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk;
+
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.miracl.mpinsdk.model.Status;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+@RunWith(RobolectricTestRunner.class)
+public class SingleFlightTest {
+
+    private static final long   RESULT_WINDOW_MS = 1000;
+    private static final String KEY              = "users";
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    private static final SingleFlight.Copier<List<String>> COPIER = new SingleFlight.Copier<List<String>>() {
+
+        @Override
+        public List<String> copy(@NonNull List<String> result) {
+            return new ArrayList<>(result);
+        }
+    };
+
+    private SingleFlight<List<String>> mSingleFlight;
+
+    @Before
+    public void setUp() {
+        mSingleFlight = new SingleFlight<>(DIRECT_EXECUTOR, RESULT_WINDOW_MS, COPIER);
+    }
+
+    @Test
+    public void concurrentCallersShareOneExecution() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        SingleFlight<List<String>>.Caller leader = mSingleFlight.join(KEY, first);
+        SingleFlight<List<String>>.Caller follower = mSingleFlight.join(KEY, second);
+        assertTrue(leader.isLeader());
+        assertFalse(follower.isLeader());
+        assertFalse(follower.isDone());
+
+        List<String> result = Arrays.asList("alice", "bob");
+        leader.getCompletion().onResult(ok(), result);
+
+        assertEquals(Status.Code.OK, first.status.getStatusCode());
+        assertEquals(Status.Code.OK, second.status.getStatusCode());
+        assertEquals(result, first.result);
+        assertEquals(result, second.result);
+        assertTrue(leader.isDone());
+        assertTrue(follower.isDone());
+    }
+
+    @Test
+    public void eachCallerReceivesItsOwnCopy() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        SingleFlight<List<String>>.Caller leader = mSingleFlight.join(KEY, first);
+        mSingleFlight.join(KEY, second);
+
+        List<String> result = new ArrayList<>(Arrays.asList("alice", "bob"));
+        leader.getCompletion().onResult(ok(), result);
+        first.result.remove("alice");
+
+        assertNotSame(result, first.result);
+        assertNotSame(first.result, second.result);
+        assertEquals(Arrays.asList("alice", "bob"), second.result);
+        assertEquals(Arrays.asList("alice", "bob"), result);
+    }
+
+    @Test
+    public void resultIsReusedWithinWindow() {
+        SingleFlight<List<String>>.Caller leader = mSingleFlight.join(KEY, new RecordingCallback());
+        leader.getCompletion().onResult(ok(), Arrays.asList("alice"));
+
+        SystemClock.sleep(RESULT_WINDOW_MS - 1);
+        RecordingCallback late = new RecordingCallback();
+        SingleFlight<List<String>>.Caller caller = mSingleFlight.join(KEY, late);
+        assertFalse(caller.isLeader());
+        assertTrue(caller.isDone());
+        assertEquals(Arrays.asList("alice"), late.result);
+
+        SystemClock.sleep(1);
+        assertTrue(mSingleFlight.join(KEY, new RecordingCallback()).isLeader());
+    }
+
+    @Test
+    public void failureIsNotReused() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        SingleFlight<List<String>>.Caller leader = mSingleFlight.join(KEY, first);
+        mSingleFlight.join(KEY, second);
+
+        leader.getCompletion().onResult(new Status(Status.Code.NETWORK_ERROR, "error"), null);
+
+        assertEquals(Status.Code.NETWORK_ERROR, first.status.getStatusCode());
+        assertEquals(Status.Code.NETWORK_ERROR, second.status.getStatusCode());
+        assertNull(second.result);
+        assertTrue(mSingleFlight.join(KEY, new RecordingCallback()).isLeader());
+    }
+
+    @Test
+    public void differentKeysDontShareExecution() {
+        assertTrue(mSingleFlight.join(KEY, new RecordingCallback()).isLeader());
+        assertTrue(mSingleFlight.join("other", new RecordingCallback()).isLeader());
+    }
+
+    @Test
+    public void cancelingOneCallerKeepsExecution() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        RecordingHandle execution = new RecordingHandle();
+        SingleFlight<List<String>>.Caller leader = mSingleFlight.join(KEY, first);
+        SingleFlight<List<String>>.Caller follower = mSingleFlight.join(KEY, second);
+        leader.setExecution(execution);
+
+        assertTrue(follower.cancel());
+        assertFalse(follower.cancel());
+        assertEquals(Status.Code.CANCELED, second.status.getStatusCode());
+        assertFalse(execution.canceled);
+
+        leader.getCompletion().onResult(ok(), Arrays.asList("alice"));
+        assertEquals(Status.Code.OK, first.status.getStatusCode());
+        assertEquals(1, second.calls);
+    }
+
+    @Test
+    public void cancelingAllCallersCancelsExecution() {
+        RecordingHandle execution = new RecordingHandle();
+        SingleFlight<List<String>>.Caller leader = mSingleFlight.join(KEY, new RecordingCallback());
+        SingleFlight<List<String>>.Caller follower = mSingleFlight.join(KEY, new RecordingCallback());
+        leader.setExecution(execution);
+
+        leader.cancel();
+        assertFalse(execution.canceled);
+        follower.cancel();
+        assertTrue(execution.canceled);
+
+        assertTrue(mSingleFlight.join(KEY, new RecordingCallback()).isLeader());
+    }
+
+    @Test
+    public void executionStartedAfterAllCallersCanceledIsCanceled() {
+        RecordingHandle execution = new RecordingHandle();
+        SingleFlight<List<String>>.Caller leader = mSingleFlight.join(KEY, new RecordingCallback());
+        leader.cancel();
+
+        leader.setExecution(execution);
+        assertTrue(execution.canceled);
+    }
+
+    private static Status ok() {
+        return new Status(Status.Code.OK, null);
+    }
+
+    private static final class RecordingCallback extends MPinMfaAsync.Callback<List<String>> {
+
+        Status       status;
+        List<String> result;
+        int          calls;
+
+        @Override
+        protected void onResult(@NonNull Status status, @Nullable List<String> result) {
+            this.status = status;
+            this.result = result;
+            calls++;
+        }
+    }
+
+    private static final class RecordingHandle implements OperationHandle {
+
+        boolean canceled;
+
+        @Override
+        public boolean cancel() {
+            canceled = true;
+            return true;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return canceled;
+        }
+    }
+}
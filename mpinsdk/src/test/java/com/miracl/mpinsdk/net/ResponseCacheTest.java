@@ -0,0 +1,205 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.net;
+
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+@RunWith(RobolectricTestRunner.class)
+public class ResponseCacheTest {
+
+    private static final String URL = "https://api.example.com/rps/clientSettings";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void freshResponseIsServedFromCache() throws IOException {
+        ResponseCache cache = new ResponseCache(null);
+        FakeTransport transport = new FakeTransport();
+        transport.respond(200, "settings", "Cache-Control", "max-age=60");
+
+        assertEquals("settings", cache.execute(get(), transport).getData());
+        HTTPResponse hit = cache.execute(get(), transport);
+
+        assertEquals("settings", hit.getData());
+        assertTrue(hit.getTimings().isFromCache());
+        assertEquals(1, transport.requests.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void staleResponseIsRevalidated() throws IOException {
+        ResponseCache cache = new ResponseCache(null);
+        FakeTransport transport = new FakeTransport();
+        transport.respond(200, "settings", "ETag", "\"v1\"", "Cache-Control", "no-cache");
+        transport.respond(304, null);
+
+        cache.execute(get(), transport);
+        HTTPResponse revalidated = cache.execute(get(), transport);
+
+        assertEquals(200, revalidated.getStatusCode());
+        assertEquals("settings", revalidated.getData());
+        assertEquals("\"v1\"", HTTPResponse.getHeader(transport.requests.get(1).getHeaders(), "If-None-Match"));
+        assertEquals(1, cache.getConditionalHitCount());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void changedResponseReplacesCachedOne() throws IOException {
+        ResponseCache cache = new ResponseCache(null);
+        FakeTransport transport = new FakeTransport();
+        transport.respond(200, "old", "ETag", "\"v1\"", "Cache-Control", "no-cache");
+        transport.respond(200, "new", "ETag", "\"v2\"", "Cache-Control", "no-cache");
+        transport.respond(304, null);
+
+        cache.execute(get(), transport);
+        assertEquals("new", cache.execute(get(), transport).getData());
+        assertEquals("new", cache.execute(get(), transport).getData());
+        assertEquals("\"v2\"", HTTPResponse.getHeader(transport.requests.get(2).getHeaders(), "If-None-Match"));
+    }
+
+    @Test
+    public void responsesAreKeyedByRequestHeaders() throws IOException {
+        ResponseCache cache = new ResponseCache(null);
+        FakeTransport transport = new FakeTransport();
+        transport.respond(200, "en", "Cache-Control", "max-age=60");
+        transport.respond(200, "de", "Cache-Control", "max-age=60");
+
+        assertEquals("en", cache.execute(get("Accept-Language", "en"), transport).getData());
+        assertEquals("de", cache.execute(get("Accept-Language", "de"), transport).getData());
+        assertEquals("en", cache.execute(get("accept-language", "en"), transport).getData());
+        assertEquals(2, transport.requests.size());
+    }
+
+    @Test
+    public void uncacheableRequestsAndResponsesAreNotStored() throws IOException {
+        ResponseCache cache = new ResponseCache(null);
+        FakeTransport transport = new FakeTransport();
+        transport.respond(200, "private", "Cache-Control", "max-age=60");
+        transport.respond(200, "private", "Cache-Control", "max-age=60");
+        transport.respond(200, "nostore", "Cache-Control", "no-store, max-age=60");
+        transport.respond(200, "nostore", "Cache-Control", "no-store, max-age=60");
+
+        cache.execute(get("Authorization", "Bearer token"), transport);
+        cache.execute(get("Authorization", "Bearer token"), transport);
+        cache.execute(get(), transport);
+        cache.execute(get(), transport);
+
+        assertEquals(4, transport.requests.size());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void responsesArePersisted() throws IOException {
+        File directory = mFolder.newFolder();
+        FakeTransport transport = new FakeTransport();
+        transport.respond(200, "settings", "Cache-Control", "max-age=60");
+        new ResponseCache(directory).execute(get(), transport);
+
+        HTTPResponse hit = new ResponseCache(directory).execute(get(), transport);
+
+        assertEquals("settings", hit.getData());
+        assertEquals(1, transport.requests.size());
+    }
+
+    @Test
+    public void clearKeepsForeignFiles() throws IOException {
+        File directory = mFolder.newFolder();
+        File foreignFile = new File(directory, "notes.txt");
+        File foreignDirectory = new File(directory, "images");
+        assertTrue(foreignFile.createNewFile());
+        assertTrue(foreignDirectory.mkdir());
+        FakeTransport transport = new FakeTransport();
+        transport.respond(200, "settings", "Cache-Control", "max-age=60");
+        transport.respond(200, "settings", "Cache-Control", "max-age=60");
+
+        ResponseCache cache = new ResponseCache(directory);
+        cache.execute(get(), transport);
+        cache.clear();
+
+        assertTrue(foreignFile.exists());
+        assertTrue(foreignDirectory.exists());
+        assertEquals(2, directory.list().length);
+        new ResponseCache(directory).execute(get(), transport);
+        assertEquals(2, transport.requests.size());
+    }
+
+    @Test
+    public void headerValuesAreJoined() {
+        List<String> values = new ArrayList<>();
+        assertEquals("", HTTPResponse.joinHeaderValues(values));
+        values.add("no-cache");
+        assertEquals("no-cache", HTTPResponse.joinHeaderValues(values));
+        values.add("max-age=0");
+        assertEquals("no-cache, max-age=0", HTTPResponse.joinHeaderValues(values));
+    }
+
+    private static HTTPRequest get(String... headers) {
+        return new HTTPRequest(IHTTPRequest.HTTP_GET, URL, toMap(headers), null, 0);
+    }
+
+    private static Map<String, String> toMap(String... headers) {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < headers.length; i += 2) {
+            map.put(headers[i], headers[i + 1]);
+        }
+        return map;
+    }
+
+    private static final class FakeTransport implements IHTTPTransport {
+
+        final List<HTTPRequest>  requests  = new ArrayList<>();
+        final List<HTTPResponse> responses = new LinkedList<>();
+
+        void respond(int statusCode, String data, String... headers) {
+            responses.add(new HTTPResponse(statusCode, toMap(headers), data));
+        }
+
+        @Override
+        public HTTPResponse execute(HTTPRequest request) throws IOException {
+            requests.add(request);
+            if (responses.isEmpty()) {
+                throw new IOException("Unexpected request");
+            }
+            return responses.remove(0);
+        }
+
+        @Override
+        public void prewarm(String url) {
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.net;
+
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+@RunWith(RobolectricTestRunner.class)
+public class RetryConfigTest {
+
+    private static final String URL       = "https://api.example.com/rps/v2/user?id=1";
+    private static final String OTHER_URL = "https://api.example.com/rps/v2/codeStatus";
+
+    @Test
+    public void retriesStopWhenBudgetIsHalfSpent() {
+        RetryConfig config = new RetryConfig(10, 0.1);
+        for (int i = 0; i < 4; i++) {
+            config.onAttemptFailed();
+        }
+        assertTrue(config.canRetry());
+
+        config.onAttemptFailed();
+        assertFalse(config.canRetry());
+        assertEquals(1, config.getRetryCount());
+        assertEquals(1, config.getBudgetExceededCount());
+    }
+
+    @Test
+    public void successfulAttemptsRefillBudget() {
+        RetryConfig config = new RetryConfig(10, 0.1);
+        for (int i = 0; i < 5; i++) {
+            config.onAttemptFailed();
+        }
+        assertFalse(config.canRetry());
+
+        config.onAttemptSucceeded();
+        assertTrue(config.canRetry());
+    }
+
+    @Test
+    public void budgetIsCapped() {
+        RetryConfig config = new RetryConfig(10, 0.1);
+        for (int i = 0; i < 1000; i++) {
+            config.onAttemptSucceeded();
+        }
+        for (int i = 0; i < 5; i++) {
+            config.onAttemptFailed();
+        }
+        assertFalse(config.canRetry());
+    }
+
+    @Test
+    public void budgetIsNotOverdrawn() {
+        RetryConfig config = new RetryConfig(10, 0.1);
+        for (int i = 0; i < 100; i++) {
+            config.onAttemptFailed();
+        }
+        for (int i = 0; i < 51; i++) {
+            config.onAttemptSucceeded();
+        }
+        assertTrue(config.canRetry());
+    }
+
+    @Test
+    public void hedgeDelayFallsBackToPolicyUntilEnoughSamples() {
+        RetryConfig config = new RetryConfig();
+        RetryPolicy policy = new RetryPolicy(3, 200, 2000, 150);
+        String endpoint = RetryConfig.getEndpoint(IHTTPRequest.HTTP_GET, URL);
+        for (int i = 0; i < 19; i++) {
+            config.onLatency(endpoint, 10);
+        }
+        assertEquals(150, config.getHedgeDelayMs(policy, endpoint));
+
+        config.onLatency(endpoint, 10);
+        assertEquals(10, config.getHedgeDelayMs(policy, endpoint));
+    }
+
+    @Test
+    public void hedgeDelayIsP95OfRecentLatencies() {
+        RetryConfig config = new RetryConfig();
+        RetryPolicy policy = new RetryPolicy(3, 200, 2000, 150);
+        String endpoint = RetryConfig.getEndpoint(IHTTPRequest.HTTP_GET, URL);
+        for (int i = 100; i > 0; i--) {
+            config.onLatency(endpoint, i);
+        }
+        assertEquals(95, config.getHedgeDelayMs(policy, endpoint));
+
+        // The window keeps the last 100 samples
+        for (int i = 0; i < 100; i++) {
+            config.onLatency(endpoint, 1000);
+        }
+        assertEquals(1000, config.getHedgeDelayMs(policy, endpoint));
+    }
+
+    @Test
+    public void latenciesAreObservedPerEndpoint() {
+        RetryConfig config = new RetryConfig();
+        RetryPolicy policy = new RetryPolicy(3, 200, 2000, 150);
+        String endpoint = RetryConfig.getEndpoint(IHTTPRequest.HTTP_GET, URL);
+        String otherEndpoint = RetryConfig.getEndpoint(IHTTPRequest.HTTP_GET, OTHER_URL);
+        for (int i = 0; i < 20; i++) {
+            config.onLatency(endpoint, 1000);
+        }
+
+        assertEquals(1000, config.getHedgeDelayMs(policy, endpoint));
+        assertEquals(150, config.getHedgeDelayMs(policy, otherEndpoint));
+    }
+
+    @Test
+    public void endpointIgnoresQuery() {
+        assertEquals("GET api.example.com/rps/v2/user", RetryConfig.getEndpoint(IHTTPRequest.HTTP_GET, URL));
+        assertEquals(RetryConfig.getEndpoint(IHTTPRequest.HTTP_GET, URL),
+          RetryConfig.getEndpoint(IHTTPRequest.HTTP_GET, "https://api.example.com/rps/v2/user?id=2"));
+    }
+
+    @Test
+    public void onlyIdempotentMethodsAreRetriedByDefault() {
+        RetryConfig config = new RetryConfig();
+        assertSame(RetryConfig.DEFAULT_POLICY, config.getPolicy(IHTTPRequest.HTTP_GET, URL));
+        assertSame(RetryConfig.DEFAULT_POLICY, config.getPolicy(IHTTPRequest.HTTP_PUT, URL));
+        assertSame(RetryPolicy.NONE, config.getPolicy(IHTTPRequest.HTTP_POST, URL));
+    }
+
+    @Test
+    public void longestMatchingEndpointPolicyIsUsed() {
+        RetryConfig config = new RetryConfig();
+        RetryPolicy rpsPolicy = new RetryPolicy(2, 100, 1000);
+        RetryPolicy userPolicy = new RetryPolicy(5, 100, 1000);
+        config.setPolicy(IHTTPRequest.HTTP_POST, "/rps/", rpsPolicy);
+        config.setPolicy(IHTTPRequest.HTTP_POST, "/rps/v2/user", userPolicy);
+
+        assertSame(userPolicy, config.getPolicy(IHTTPRequest.HTTP_POST, URL));
+        assertSame(rpsPolicy, config.getPolicy(IHTTPRequest.HTTP_POST, OTHER_URL));
+        assertSame(RetryPolicy.NONE, config.getPolicy(IHTTPRequest.HTTP_POST, "https://api.example.com/authorize"));
+        assertSame(RetryConfig.DEFAULT_POLICY, config.getPolicy(IHTTPRequest.HTTP_GET, URL));
+    }
+}
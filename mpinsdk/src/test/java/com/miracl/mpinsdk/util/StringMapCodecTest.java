@@ -0,0 +1,85 @@
+/* **************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ***************************************************************/
+package com.miracl.mpinsdk.util;
+
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class StringMapCodecTest {
+
+    @Test
+    public void roundTripKeepsEntriesAndOrder() {
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put("userId", "alice@example.com");
+        map.put("", "");
+        map.put("deviceName", "Телефон 📱");
+        map.put("a", "b");
+
+        Map<String, String> decoded = StringMapCodec.decode(StringMapCodec.encode(map));
+
+        assertEquals(map, decoded);
+        assertEquals(new ArrayList<>(map.keySet()), new ArrayList<>(decoded.keySet()));
+    }
+
+    @Test
+    public void emptyMapRoundTrips() {
+        Map<String, String> decoded = StringMapCodec.decode(StringMapCodec.encode(new HashMap<String, String>()));
+        assertTrue(decoded.isEmpty());
+    }
+
+    @Test
+    public void nullEntriesAreSkipped() {
+        Map<String, String> map = new HashMap<>();
+        map.put("key", null);
+        map.put(null, "value");
+        map.put("kept", "value");
+
+        assertEquals(Arrays.asList("kept"), new ArrayList<>(StringMapCodec.decode(StringMapCodec.encode(map)).keySet()));
+    }
+
+    @Test
+    public void nullMapIsEncodedAsNull() {
+        assertNull(StringMapCodec.encode(null));
+        assertNull(StringMapCodec.decode(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedDataIsRejected() {
+        Map<String, String> map = new HashMap<>();
+        map.put("key", "value");
+        byte[] encoded = StringMapCodec.encode(map);
+        StringMapCodec.decode(Arrays.copyOf(encoded, encoded.length - 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLengthIsRejected() {
+        StringMapCodec.decode(new byte[]{0, 0, 0, 1, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff});
+    }
+}